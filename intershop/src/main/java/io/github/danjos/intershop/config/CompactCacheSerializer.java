@@ -0,0 +1,228 @@
+package io.github.danjos.intershop.config;
+
+import io.github.danjos.intershop.dto.SearchResultCache;
+import io.github.danjos.intershop.model.Item;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hand-rolled binary codec for the hot cache values ({@link Item} and
+ * {@link SearchResultCache}); everything else (strings in tag sets, pub/sub
+ * messages, ...) goes through the fallback serializer.
+ * <p>
+ * Layout: a magic byte that can never start a JSON document, a type tag and a
+ * schema version, then the fields in declaration order as varints, doubles and
+ * length-prefixed UTF-8 strings. No class names or field names are stored.
+ * Payloads without the magic byte are handed to the fallback, so entries
+ * written by the JSON serializer stay readable after switching.
+ */
+public class CompactCacheSerializer implements RedisSerializer<Object> {
+
+    private static final byte MAGIC = (byte) 0xC1;
+    private static final byte TYPE_ITEM = 1;
+    private static final byte TYPE_SEARCH_RESULT = 2;
+    // Bump when a field is added, removed or reordered, and flush the caches;
+    // CompactCacheSerializerTest fails for Item fields the codec does not write
+    private static final byte SCHEMA_VERSION = 1;
+
+    private final RedisSerializer<Object> fallback;
+
+    public CompactCacheSerializer(RedisSerializer<Object> fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value instanceof Item item) {
+            Writer writer = new Writer(64);
+            writer.header(TYPE_ITEM);
+            writeItem(writer, item);
+            return writer.toByteArray();
+        }
+        if (value instanceof SearchResultCache page) {
+            List<Item> items = page.getItems() != null ? page.getItems() : List.of();
+            Writer writer = new Writer(32 + items.size() * 64);
+            writer.header(TYPE_SEARCH_RESULT);
+            writer.varLong(page.getTotalElements());
+            writer.varLong(page.getPageNumber());
+            writer.varLong(page.getPageSize());
+            writer.varLong(page.getComputeMillis());
+            writer.varLong(page.getExpiresAtMillis());
+            writer.varLong(items.size());
+            for (Item item : items) {
+                writeItem(writer, item);
+            }
+            return writer.toByteArray();
+        }
+        return fallback.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return fallback.deserialize(bytes);
+        }
+        if (bytes.length < 3 || bytes[2] != SCHEMA_VERSION) {
+            throw new SerializationException("Unsupported compact cache schema version");
+        }
+        Reader reader = new Reader(bytes, 3);
+        try {
+            switch (bytes[1]) {
+                case TYPE_ITEM:
+                    return readItem(reader);
+                case TYPE_SEARCH_RESULT:
+                    SearchResultCache page = new SearchResultCache();
+                    page.setTotalElements(reader.varLong());
+                    page.setPageNumber((int) reader.varLong());
+                    page.setPageSize((int) reader.varLong());
+                    page.setComputeMillis(reader.varLong());
+                    page.setExpiresAtMillis(reader.varLong());
+                    int count = (int) reader.varLong();
+                    List<Item> items = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        items.add(readItem(reader));
+                    }
+                    page.setItems(items);
+                    return page;
+                default:
+                    throw new SerializationException("Unknown compact cache type " + bytes[1]);
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("Truncated compact cache payload", e);
+        }
+    }
+
+    private static void writeItem(Writer writer, Item item) {
+        // Ids are non-negative identities; 0 encodes a missing id
+        writer.varLong(item.getId() != null ? item.getId() + 1 : 0);
+        writer.string(item.getTitle());
+        writer.string(item.getDescription());
+        writer.fixedDouble(item.getPrice());
+        writer.string(item.getImgPath());
+        writer.varLong(item.getStock());
+    }
+
+    private static Item readItem(Reader reader) {
+        Item item = new Item();
+        long id = reader.varLong();
+        item.setId(id == 0 ? null : id - 1);
+        item.setTitle(reader.string());
+        item.setDescription(reader.string());
+        item.setPrice(reader.fixedDouble());
+        item.setImgPath(reader.string());
+        item.setStock((int) reader.varLong());
+        return item;
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        Writer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void header(byte type) {
+            ensure(3);
+            buffer[position++] = MAGIC;
+            buffer[position++] = type;
+            buffer[position++] = SCHEMA_VERSION;
+        }
+
+        /** ZigZag varint, so small negative numbers stay short too. */
+        void varLong(long value) {
+            long v = (value << 1) ^ (value >> 63);
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buffer[position++] = (byte) v;
+        }
+
+        void fixedDouble(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (bits >>> shift);
+            }
+        }
+
+        /** Length + 1 as a varint (0 means null), then UTF-8 bytes. */
+        void string(String value) {
+            if (value == null) {
+                varLong(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varLong(utf8.length + 1L);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, buffer, position, utf8.length);
+            position += utf8.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        Reader(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        long varLong() {
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (shift > 63) {
+                    throw new SerializationException("Malformed varint in compact cache payload");
+                }
+                b = buffer[position++];
+                v |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        double fixedDouble() {
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                bits = (bits << 8) | (buffer[position++] & 0xFF);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        String string() {
+            int length = (int) varLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (position + length > buffer.length) {
+                throw new ArrayIndexOutOfBoundsException(position + length);
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
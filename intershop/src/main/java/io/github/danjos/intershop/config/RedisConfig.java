@@ -1,11 +1,13 @@
 package io.github.danjos.intershop.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
@@ -13,10 +15,11 @@ public class RedisConfig {
 
     @Bean
     public ReactiveRedisTemplate<String, Object> reactiveRedisTemplate(
-            ReactiveRedisConnectionFactory connectionFactory) {
+            ReactiveRedisConnectionFactory connectionFactory,
+            @Value("${cache.serializer:json}") String serializer) {
         
         StringRedisSerializer keySerializer = new StringRedisSerializer();
-        GenericJackson2JsonRedisSerializer valueSerializer = new GenericJackson2JsonRedisSerializer();
+        RedisSerializer<Object> valueSerializer = valueSerializer(serializer);
         
         RedisSerializationContext.RedisSerializationContextBuilder<String, Object> builder =
                 RedisSerializationContext.newSerializationContext(keySerializer);
@@ -29,4 +32,21 @@ public class RedisConfig {
         
         return new ReactiveRedisTemplate<>(connectionFactory, context);
     }
+
+    /**
+     * {@code json} keeps the self-describing Jackson format; {@code compact}
+     * stores items and search pages in {@link CompactCacheSerializer}'s binary
+     * layout and can still read entries written as JSON.
+     */
+    private RedisSerializer<Object> valueSerializer(String serializer) {
+        GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+        switch (serializer) {
+            case "json":
+                return json;
+            case "compact":
+                return new CompactCacheSerializer(json);
+            default:
+                throw new IllegalArgumentException("Unknown cache.serializer: " + serializer + " (expected json or compact)");
+        }
+    }
 }
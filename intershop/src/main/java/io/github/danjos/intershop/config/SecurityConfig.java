@@ -1,13 +1,26 @@
 package io.github.danjos.intershop.config;
 
+import io.github.danjos.intershop.service.CustomUserDetailsService;
+import io.github.danjos.intershop.service.PasswordHasher;
+import io.github.danjos.intershop.service.UserService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
 import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.DelegatingServerAuthenticationSuccessHandler;
+import org.springframework.security.web.server.authentication.RedirectServerAuthenticationSuccessHandler;
+import org.springframework.security.web.server.authentication.ServerAuthenticationSuccessHandler;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.RejectedExecutionException;
 
 @Configuration
 @EnableWebFluxSecurity
@@ -15,17 +28,20 @@ import org.springframework.security.web.server.SecurityWebFilterChain;
 public class SecurityConfig {
     
     @Bean
-    public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http) {
+    public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http, UserService userService) {
+        ServerAuthenticationSuccessHandler onLogin = rememberUserId(userService);
         return http
             .authorizeExchange()
-                .pathMatchers("/", "/items/**", "/images/**", "/css/**", "/js/**", "/login", "/register", "/debug/**", "/test/**", "/oauth2/**", "/api/users/**").permitAll()
+                .pathMatchers("/", "/items/**", "/images/**", "/css/**", "/js/**", "/login", "/register", "/debug/**", "/test/**", "/oauth2/**").permitAll()
                 .pathMatchers("/cart/**", "/orders/**").authenticated()
                 .anyExchange().authenticated()
             .and()
             .formLogin()
                 .loginPage("/login")
+                .authenticationSuccessHandler(onLogin)
             .and()
             .oauth2Login()
+                .authenticationSuccessHandler(onLogin)
             .and()
             .logout()
                 .logoutUrl("/logout")
@@ -34,8 +50,43 @@ public class SecurityConfig {
             .build();
     }
     
+    /**
+     * Resolves the user id once at login and keeps it in the session, so the
+     * cart and order pages do not look it up again; then redirects as usual.
+     */
+    private ServerAuthenticationSuccessHandler rememberUserId(UserService userService) {
+        ServerAuthenticationSuccessHandler storeUserId = (webFilterExchange, authentication) ->
+            userService.getOrCreateUserIdByUsername(webFilterExchange.getExchange(), authentication.getName())
+                .onErrorResume(e -> Mono.empty())
+                .then();
+        return new DelegatingServerAuthenticationSuccessHandler(storeUserId, new RedirectServerAuthenticationSuccessHandler());
+    }
+    
+    /**
+     * Form login with password checks (and upgrade rehashes) on the bounded
+     * hashing scheduler. A full hashing queue fails the login like a service
+     * error, so the user is sent back to the login page instead of waiting.
+     */
+    @Bean
+    public ReactiveAuthenticationManager authenticationManager(CustomUserDetailsService userDetailsService,
+                                                               PasswordHasher passwordHasher) {
+        UserDetailsRepositoryReactiveAuthenticationManager manager =
+            new UserDetailsRepositoryReactiveAuthenticationManager(userDetailsService);
+        manager.setPasswordEncoder(passwordHasher.encoder());
+        manager.setScheduler(passwordHasher.scheduler());
+        manager.setUserDetailsPasswordService(userDetailsService);
+        return authentication -> manager.authenticate(authentication)
+            .doOnError(RejectedExecutionException.class, e -> passwordHasher.recordRejection())
+            .onErrorMap(RejectedExecutionException.class,
+                e -> new AuthenticationServiceException("Too many logins in progress, try again", e));
+    }
+    
+    /**
+     * BCrypt with a configurable cost. Raising it takes effect for stored
+     * hashes at the next successful login of each user.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.password.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 }
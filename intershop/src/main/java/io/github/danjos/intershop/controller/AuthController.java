@@ -45,46 +45,32 @@ public class AuthController {
 
     @GetMapping("/debug/users")
     @ResponseBody
-    public String debugUsers() {
-        try {
-            // Use a different approach to avoid blocking
-            var userOpt = userService.findByUsername("currentUser").blockOptional();
-            if (userOpt.isPresent()) {
-                var user = userOpt.get();
-                boolean passwordMatch = userService.matchesPassword("testpass", user.getPassword());
-                return String.format("User found: %s, Password matches 'testpass': %s, Stored hash: %s", 
-                    user.getUsername(), passwordMatch, user.getPassword());
-            } else {
-                return "User 'currentUser' not found";
-            }
-        } catch (Exception e) {
-            return "Error: " + e.getMessage();
-        }
+    public Mono<String> debugUsers() {
+        return userService.findByUsername("currentUser")
+            .flatMap(user -> userService.matchesPassword("testpass", user.getPassword())
+                .map(passwordMatch -> String.format("User found: %s, Password matches 'testpass': %s, Stored hash: %s", 
+                    user.getUsername(), passwordMatch, user.getPassword())))
+            .defaultIfEmpty("User 'currentUser' not found")
+            .onErrorResume(e -> Mono.just("Error: " + e.getMessage()));
     }
     
     @GetMapping("/debug/generate-hash")
     @ResponseBody
-    public String generateHash() {
-        try {
-            // Generate a new hash for 'testpass'
-            String newHash = userService.getPasswordEncoder().encode("testpass");
-            boolean matches = userService.matchesPassword("testpass", newHash);
-            return String.format("New hash for 'testpass': %s, Matches: %s", newHash, matches);
-        } catch (Exception e) {
-            return "Error: " + e.getMessage();
-        }
+    public Mono<String> generateHash() {
+        // Generate a new hash for 'testpass'
+        return userService.encodePassword("testpass")
+            .flatMap(newHash -> userService.matchesPassword("testpass", newHash)
+                .map(matches -> String.format("New hash for 'testpass': %s, Matches: %s", newHash, matches)))
+            .onErrorResume(e -> Mono.just("Error: " + e.getMessage()));
     }
     
     @GetMapping("/debug/password")
     @ResponseBody
-    public String debugPassword() {
-        try {
-            // Test the known BCrypt hash
-            String knownHash = "$2a$10$92IXUNpkjO0rOQ5byMi.Ye4oKoEa3Ro9llC/.og/at2.uheWG/igi";
-            boolean matches = userService.matchesPassword("testpass", knownHash);
-            return String.format("Known hash matches 'testpass': %s", matches);
-        } catch (Exception e) {
-            return "Error: " + e.getMessage();
-        }
+    public Mono<String> debugPassword() {
+        // Test the known BCrypt hash
+        String knownHash = "$2a$10$92IXUNpkjO0rOQ5byMi.Ye4oKoEa3Ro9llC/.og/at2.uheWG/igi";
+        return userService.matchesPassword("testpass", knownHash)
+            .map(matches -> String.format("Known hash matches 'testpass': %s", matches))
+            .onErrorResume(e -> Mono.just("Error: " + e.getMessage()));
     }
 }
@@ -1,9 +1,11 @@
 package io.github.danjos.intershop.controller;
 
 import io.github.danjos.intershop.dto.CartItemDto;
+import io.github.danjos.intershop.dto.CartSnapshot;
 import io.github.danjos.intershop.model.User;
+import io.github.danjos.intershop.exception.InsufficientBalanceException;
 import io.github.danjos.intershop.service.CartService;
-import io.github.danjos.intershop.service.OrderService;
+import io.github.danjos.intershop.service.CheckoutService;
 import io.github.danjos.intershop.service.UserService;
 import io.github.danjos.intershop.service.PaymentClientService;
 import lombok.RequiredArgsConstructor;
@@ -14,22 +16,23 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.reactive.result.view.Rendering;
+import org.springframework.web.server.ServerWebExchange;
 
 import reactor.core.publisher.Mono;
 
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.UUID;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.access.prepost.PreAuthorize;
-import java.math.BigDecimal;
 
 @Controller
 @RequiredArgsConstructor
 @Slf4j
 public class WebCartController {
+    static final String CHECKOUT_TOKEN_PARAM = "idempotencyKey";
+
     private final CartService cartService;
-    private final OrderService orderService;
+    private final CheckoutService checkoutService;
     private final UserService userService;
     private final PaymentClientService paymentClientService;
 
@@ -37,7 +40,8 @@ public class WebCartController {
     @PreAuthorize("isAuthenticated()")
     public Mono<Rendering> showCart(Authentication authentication, 
                                    @RequestParam(required = false) String error,
-                                   @RequestParam(required = false) String success) {
+                                   @RequestParam(required = false) String success,
+                                   ServerWebExchange exchange) {
         // Проверяем, что пользователь авторизован
         if (authentication == null || "anonymousUser".equals(authentication.getName())) {
             log.warn("Unauthenticated access attempt to cart for user: {}", 
@@ -47,13 +51,15 @@ public class WebCartController {
         
         log.info("Accessing cart for authenticated user: {}", authentication.getName());
         
-        return userService.getOrCreateUserIdByUsername(authentication.getName())
+        return userService.getOrCreateUserIdByUsername(exchange, authentication.getName())
             .flatMap(userId -> {
                 log.debug("Found/created user ID: {} for username: {}", userId, authentication.getName());
+                // One cart load shared by the lines, the total and the checkout flag
+                Mono<CartSnapshot> cart = cartService.getCartSnapshot(exchange, userId);
                 return Mono.zip(
-                    cartService.getCartItemsReactive(userId).onErrorReturn(List.of()),
-                    cartService.getCartTotalReactive(userId).onErrorReturn(0.0),
-                    cartService.isCheckoutEnabled(userId).onErrorReturn(false),
+                    cart.map(CartSnapshot::getLines).onErrorReturn(List.of()),
+                    cart.map(CartSnapshot::getTotal).onErrorReturn(0.0),
+                    cart.map(cartService::isCheckoutEnabled).onErrorReturn(false),
                     userService.findByUsername(authentication.getName()).onErrorReturn(createDefaultUser(authentication.getName())),
                     paymentClientService.getBalanceForUser(authentication.getName()).onErrorReturn(1000.0)
                 );
@@ -77,6 +83,8 @@ public class WebCartController {
                         .modelAttribute("balance", balance)
                         .modelAttribute("error", error)
                         .modelAttribute("success", success)
+                        // Идемпотентность: повторная отправка этой страницы не создаст второй заказ
+                        .modelAttribute("checkoutToken", UUID.randomUUID().toString())
                         .build();
             })
             .onErrorResume(e -> {
@@ -100,7 +108,8 @@ public class WebCartController {
     public Mono<Rendering> handleCartAction(
             @PathVariable Long id, 
             @RequestParam String action, 
-            Authentication authentication) {
+            Authentication authentication,
+            ServerWebExchange exchange) {
         
         log.info("Handling cart action: {} for item: {} by user: {}", action, id, 
             authentication != null ? authentication.getName() : "null");
@@ -112,7 +121,7 @@ public class WebCartController {
             return Mono.just(Rendering.redirectTo("/login").build());
         }
         
-        return userService.getOrCreateUserIdByUsername(authentication.getName())
+        return userService.getOrCreateUserIdByUsername(exchange, authentication.getName())
             .flatMap(userId -> {
                 log.debug("Found/created user ID: {} for cart action by user: {}", userId, authentication.getName());
                 Mono<Void> cartOperation = Mono.empty();
@@ -136,7 +145,7 @@ public class WebCartController {
 
     @PostMapping("/buy")
     @PreAuthorize("isAuthenticated()")
-    public Mono<Rendering> createOrder(Authentication authentication) {
+    public Mono<Rendering> createOrder(Authentication authentication, ServerWebExchange exchange) {
         log.info("Creating order from cart for user: {}", 
             authentication != null ? authentication.getName() : "null");
         
@@ -147,43 +156,23 @@ public class WebCartController {
             return Mono.just(Rendering.redirectTo("/login").build());
         }
         
-        return userService.findByUsername(authentication.getName())
-            .flatMap(user -> {
-                return userService.getOrCreateUserIdByUsername(authentication.getName())
-                    .flatMap(userId -> Mono.zip(
-                        cartService.getCartItemsReactive(userId),
-                        cartService.getCartTotalReactive(userId)
-                    ))
-                    .flatMap(tuple -> {
-                        List<CartItemDto> cartItems = tuple.getT1();
-                        Double total = tuple.getT2();
-                        
-                        if (cartItems.isEmpty()) {
-                            return Mono.just(Rendering.redirectTo("/cart/items").build());
-                        }
-                        
-                        // Конвертируем CartItemDto в Map для OrderService
-                        Map<Long, Integer> cartMap = cartItems.stream()
-                            .collect(Collectors.toMap(item -> item.getId(), CartItemDto::getCount));
-                        
-                        // Process payment and create order
-                        return paymentClientService.processPaymentForUser(authentication.getName(), total, "order-" + System.currentTimeMillis())
-                            .flatMap(paymentSuccess -> {
-                                if (!paymentSuccess) {
-                                    log.error("Payment failed for user {}", authentication.getName());
-                                    return Mono.just(Rendering.redirectTo("/cart/items?error=insufficient_balance").build());
-                                }
-                                
-                                // Create order after successful payment
-                                return orderService.createOrderFromCart(cartMap, user)
-                                    .flatMap(order -> {
-                                        // Clear the cart after successful order creation
-                                        return userService.getOrCreateUserIdByUsername(authentication.getName())
-                                            .flatMap(cartService::clearUserCart)
-                                            .then(Mono.just(Rendering.redirectTo("/orders?success=true").build()));
-                                    });
-                            });
-                    });
+        return exchange.getFormData()
+            .mapNotNull(form -> form.getFirst(CHECKOUT_TOKEN_PARAM))
+            .filter(token -> !token.isBlank() && token.length() <= 64)
+            // Без токена (устаревшая страница) заказ не принимаем: повторную отправку нечем отличить
+            .flatMap(token -> userService.findByUsername(authentication.getName())
+                // The user row is needed for the order anyway, so the cart is keyed by its id
+                .flatMap(user -> checkoutService.checkout(user, cartService.getCartSnapshot(exchange, user.getId()), token))
+                .map(order -> Rendering.redirectTo("/orders?success=true").build())
+                // Nothing to buy
+                .defaultIfEmpty(Rendering.redirectTo("/cart/items").build()))
+            .switchIfEmpty(Mono.fromSupplier(() -> {
+                log.warn("Rejected checkout without a token for user: {}", authentication.getName());
+                return Rendering.redirectTo("/cart/items").build();
+            }))
+            .onErrorResume(InsufficientBalanceException.class, e -> {
+                log.warn("Payment failed for user {}: {}", authentication.getName(), e.getMessage());
+                return Mono.just(Rendering.redirectTo("/cart/items?error=insufficient_balance").build());
             })
             .onErrorResume(e -> {
                 log.error("Error in createOrder", e);
@@ -195,7 +184,6 @@ public class WebCartController {
         User user = new User();
         user.setUsername(username);
         user.setEmail(username + "@example.com");
-        user.setBalance(BigDecimal.valueOf(1000.0));
         return user;
     }
 } 
\ No newline at end of file
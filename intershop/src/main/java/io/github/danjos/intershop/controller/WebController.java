@@ -4,17 +4,18 @@ import io.github.danjos.intershop.dto.CartItemDto;
 import io.github.danjos.intershop.model.Item;
 import io.github.danjos.intershop.service.CartService;
 import io.github.danjos.intershop.service.ItemService;
+import io.github.danjos.intershop.util.PageCursor;
 import io.github.danjos.intershop.util.Paging;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.reactive.result.view.Rendering;
-import org.springframework.web.server.WebSession;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
@@ -39,27 +40,43 @@ public class WebController {
             @RequestParam(name = "search", required = false, defaultValue = "") String search,
             @RequestParam(name = "pageSize", required = false, defaultValue = "10") int pageSize,
             @RequestParam(name = "pageNumber", required = false, defaultValue = "1") int pageNumber,
-            Authentication authentication) {
+            @RequestParam(name = "cursor", required = false) String cursor,
+            Authentication authentication,
+            ServerWebExchange exchange) {
 
         // Получаем ID пользователя или null для анонимных
         Mono<List<CartItemDto>> userCartMono;
         if (authentication != null && !"anonymousUser".equals(authentication.getName())) {
-            userCartMono = userService.getUserIdByUsername(authentication.getName())
+            userCartMono = userService.getUserIdByUsername(exchange, authentication.getName())
                 .flatMap(userId -> cartService.getCartItemsReactive(userId))
                 .onErrorReturn(List.of());
         } else {
             userCartMono = Mono.just(List.<CartItemDto>of());
         }
 
+        // Pages reached through a cursor are read with a keyset seek; a cursor from
+        // another sort or search mode is ignored and the offset page is served instead
+        String seekMode = PageCursor.modeFor(search, sort);
+        PageCursor pageCursor = PageCursor.decode(cursor);
+        Mono<Slice<Item>> itemsMono;
+        if (pageCursor != null && pageCursor.getMode().equals(seekMode)) {
+            itemsMono = itemService.scrollItems(search, pageSize, pageCursor);
+        } else {
+            itemsMono = itemService.searchItems(search, pageNumber, pageSize, sort).map(page -> page);
+        }
+
         return Mono.zip(
-                itemService.searchItems(search, pageNumber, pageSize, sort),
+                itemsMono,
                 userCartMono
             )
             .map(tuple -> {
-                Page<Item> mainPage = tuple.getT1();
+                Slice<Item> mainPage = tuple.getT1();
                 List<CartItemDto> userCart = tuple.getT2();
                 
-                Paging paging = new Paging(pageNumber, pageSize, mainPage.hasNext(), mainPage.hasPrevious());
+                int currentPage = mainPage.getNumber() + 1;
+                Paging paging = new Paging(currentPage, pageSize, mainPage.hasNext(), mainPage.hasPrevious(),
+                        PageCursor.next(seekMode, currentPage, mainPage.getContent()),
+                        PageCursor.previous(seekMode, currentPage, mainPage.getContent()));
                 
                 // Создаем Map для быстрого поиска количества товаров в корзине
                 Map<Long, Integer> cartMap = userCart.stream()
@@ -72,6 +89,7 @@ public class WebController {
                 return Rendering.view("main")
                         .modelAttribute("items", itemsWithCount)
                         .modelAttribute("search", search)
+                        .modelAttribute("sort", sort)
                         .modelAttribute("paging", paging)
                         .modelAttribute("isLoggedIn", authentication != null && !"anonymousUser".equals(authentication.getName()))
                         .build();
@@ -87,7 +105,8 @@ public class WebController {
     public Mono<Rendering> handleMainItemAction(
             @PathVariable Long id,
             @RequestParam String action,
-            Authentication authentication) {
+            Authentication authentication,
+            ServerWebExchange exchange) {
 
         log.info("Handling main item action: {} for item: {}", action, id);
         
@@ -97,7 +116,7 @@ public class WebController {
         }
         
         // Получаем ID пользователя и выполняем операцию с корзиной
-        return userService.getUserIdByUsername(authentication.getName())
+        return userService.getUserIdByUsername(exchange, authentication.getName())
             .flatMap(userId -> {
                 Mono<Void> cartOperation = Mono.empty();
                 
@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -28,11 +29,11 @@ public class WebItemController {
     private final UserService userService;
 
     @GetMapping("/{id}")
-    public Mono<Rendering> showItem(@PathVariable Long id, Authentication authentication) {
+    public Mono<Rendering> showItem(@PathVariable Long id, Authentication authentication, ServerWebExchange exchange) {
         // Получаем корзину пользователя или пустую корзину для анонимных
         Mono<List<CartItemDto>> userCartMono;
         if (authentication != null && !"anonymousUser".equals(authentication.getName())) {
-            userCartMono = userService.getUserIdByUsername(authentication.getName())
+            userCartMono = userService.getUserIdByUsername(exchange, authentication.getName())
                 .flatMap(userId -> cartService.getCartItemsReactive(userId))
                 .onErrorReturn(List.of());
         } else {
@@ -71,7 +72,8 @@ public class WebItemController {
     public Mono<Rendering> handleItemAction(
             @PathVariable Long id,
             @RequestParam String action,
-            Authentication authentication) {
+            Authentication authentication,
+            ServerWebExchange exchange) {
 
         log.info("Handling item action: {} for item: {}", action, id);
 
@@ -80,7 +82,7 @@ public class WebItemController {
             return Mono.just(Rendering.redirectTo("/login").build());
         }
 
-        return userService.getUserIdByUsername(authentication.getName())
+        return userService.getUserIdByUsername(exchange, authentication.getName())
             .flatMap(userId -> {
                 Mono<Void> cartOperation = Mono.empty();
 
@@ -0,0 +1,64 @@
+package io.github.danjos.intershop.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One read of a user's cart: the lines together with their total and the
+ * number of units, so pages and checkout do not recompute them from the lines.
+ */
+@Data
+public class CartSnapshot {
+    private static final CartSnapshot EMPTY = new CartSnapshot(List.of());
+
+    private final List<CartItemDto> lines;
+    private final double total;
+    private final int itemCount;
+
+    public CartSnapshot(List<CartItemDto> lines) {
+        double sum = 0;
+        int count = 0;
+        for (CartItemDto line : lines) {
+            sum += line.getPrice() * line.getCount();
+            count += line.getCount();
+        }
+        this.lines = List.copyOf(lines);
+        this.total = sum;
+        this.itemCount = count;
+    }
+
+    public static CartSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * The total in exact decimal, rounded to cents, for charging.
+     */
+    public BigDecimal getTotalAmount() {
+        BigDecimal amount = BigDecimal.ZERO;
+        for (CartItemDto line : lines) {
+            amount = amount.add(BigDecimal.valueOf(line.getPrice()).multiply(BigDecimal.valueOf(line.getCount())));
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    /**
+     * Quantities by item id, in line order.
+     */
+    public Map<Long, Integer> quantities() {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartItemDto line : lines) {
+            quantities.put(line.getId(), line.getCount());
+        }
+        return quantities;
+    }
+}
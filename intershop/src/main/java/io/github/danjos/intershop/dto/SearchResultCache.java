@@ -18,13 +18,22 @@ public class SearchResultCache {
     private long totalElements;
     private int pageNumber;
     private int pageSize;
+    // How long the page took to compute and when it expires, for early refresh
+    private long computeMillis;
+    private long expiresAtMillis;
     
     public static SearchResultCache fromPage(Page<Item> page) {
+        return fromPage(page, 0, 0);
+    }
+
+    public static SearchResultCache fromPage(Page<Item> page, long computeMillis, long expiresAtMillis) {
         return new SearchResultCache(
             page.getContent(),
             page.getTotalElements(),
             page.getNumber(),
-            page.getSize()
+            page.getSize(),
+            computeMillis,
+            expiresAtMillis
         );
     }
     
@@ -0,0 +1,8 @@
+package io.github.danjos.intershop.exception;
+
+public class InsufficientBalanceException extends RuntimeException {
+
+    public InsufficientBalanceException(String message) {
+        super(message);
+    }
+}
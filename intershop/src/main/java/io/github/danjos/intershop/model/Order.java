@@ -6,6 +6,8 @@ import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 import lombok.Data;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -13,6 +15,11 @@ import java.util.List;
 @Table("orders")
 @Data
 public class Order {
+    /** Committed by checkout, not paid yet. */
+    public static final String PENDING = "PENDING";
+    /** Paid by checkout. */
+    public static final String PAID = "PAID";
+
     @Id
     private Long id;
 
@@ -23,10 +30,27 @@ public class Order {
     private LocalDateTime orderDate;
     private String status;
 
+    /**
+     * Checkout token from the cart page; at most one order per user and token.
+     */
+    @Column("idempotency_key")
+    private String idempotencyKey;
+
     @Transient
     private List<OrderItem> items = new ArrayList<>();
 
     public double getTotalSum() {
         return items.stream().mapToDouble(oi -> oi.getPrice() * oi.getQuantity()).sum();
     }
+
+    /**
+     * The total in exact decimal, rounded to cents, as charged at checkout.
+     */
+    public BigDecimal getTotalAmount() {
+        BigDecimal amount = BigDecimal.ZERO;
+        for (OrderItem item : items) {
+            amount = amount.add(BigDecimal.valueOf(item.getPrice()).multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
 }
@@ -4,7 +4,6 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 import lombok.Data;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Table("users")
@@ -15,7 +14,6 @@ public class User {
     private String username;
     private String password;
     private String email;
-    private BigDecimal balance;
     @Column("created_at")
     private LocalDateTime createdAt;
 }
\ No newline at end of file
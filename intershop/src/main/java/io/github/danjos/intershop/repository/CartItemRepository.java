@@ -1,6 +1,7 @@
 package io.github.danjos.intershop.repository;
 
 import io.github.danjos.intershop.model.CartItem;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
@@ -19,4 +20,23 @@ public interface CartItemRepository extends ReactiveCrudRepository<CartItem, Lon
     
     @Query("DELETE FROM cart_items WHERE user_id = :userId AND item_id = :itemId")
     Mono<Void> deleteByUserIdAndItemId(Long userId, Long itemId);
+
+    // Single-statement cart mutations: each click is one round trip and concurrent
+    // clicks are serialized on the (user_id, item_id) row instead of read-modify-write.
+
+    @Modifying
+    @Query("MERGE INTO cart_items c " +
+           "USING (VALUES (CAST(:userId AS BIGINT), CAST(:itemId AS BIGINT))) AS s(user_id, item_id) " +
+           "ON c.user_id = s.user_id AND c.item_id = s.item_id " +
+           "WHEN MATCHED THEN UPDATE SET quantity = c.quantity + 1 " +
+           "WHEN NOT MATCHED THEN INSERT (user_id, item_id, quantity) VALUES (s.user_id, s.item_id, 1)")
+    Mono<Integer> incrementQuantity(Long userId, Long itemId);
+
+    @Modifying
+    @Query("MERGE INTO cart_items c " +
+           "USING (VALUES (CAST(:userId AS BIGINT), CAST(:itemId AS BIGINT))) AS s(user_id, item_id) " +
+           "ON c.user_id = s.user_id AND c.item_id = s.item_id " +
+           "WHEN MATCHED AND c.quantity > 1 THEN UPDATE SET quantity = c.quantity - 1 " +
+           "WHEN MATCHED THEN DELETE")
+    Mono<Integer> decrementQuantityOrDelete(Long userId, Long itemId);
 }
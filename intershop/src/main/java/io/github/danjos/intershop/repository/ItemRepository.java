@@ -7,7 +7,7 @@ import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.Set;
+import java.util.Collection;
 
 @Repository
 public interface ItemRepository extends R2dbcRepository<Item, Long> {
@@ -17,16 +17,16 @@ public interface ItemRepository extends R2dbcRepository<Item, Long> {
     @Query("SELECT COUNT(*) FROM items WHERE LOWER(title) LIKE LOWER(CONCAT('%', :title, '%'))")
     Mono<Long> countByTitleContainingIgnoreCase(String title);
 
-    @Query("SELECT * FROM items WHERE LOWER(title) LIKE LOWER(CONCAT('%', :query, '%')) OR LOWER(description) LIKE LOWER(CONCAT('%', :query, '%')) LIMIT :limit OFFSET :offset")
+    @Query("SELECT * FROM items WHERE LOWER(title) LIKE LOWER(CONCAT('%', :query, '%')) OR LOWER(description) LIKE LOWER(CONCAT('%', :query, '%')) ORDER BY id ASC LIMIT :limit OFFSET :offset")
     Flux<Item> findByTitleOrDescriptionContainingIgnoreCase(String query, int limit, int offset);
 
     @Query("SELECT COUNT(*) FROM items WHERE LOWER(title) LIKE LOWER(CONCAT('%', :query, '%')) OR LOWER(description) LIKE LOWER(CONCAT('%', :query, '%'))")
     Mono<Long> countByTitleOrDescriptionContainingIgnoreCase(String query);
 
-    @Query("SELECT * FROM items ORDER BY title ASC LIMIT :limit OFFSET :offset")
+    @Query("SELECT * FROM items ORDER BY title ASC, id ASC LIMIT :limit OFFSET :offset")
     Flux<Item> findByOrderByTitleAsc(int limit, int offset);
 
-    @Query("SELECT * FROM items ORDER BY price ASC LIMIT :limit OFFSET :offset")
+    @Query("SELECT * FROM items ORDER BY price ASC, id ASC LIMIT :limit OFFSET :offset")
     Flux<Item> findByOrderByPriceAsc(int limit, int offset);
 
     @Query("SELECT * FROM items ORDER BY id ASC LIMIT :limit OFFSET :offset")
@@ -35,6 +35,33 @@ public interface ItemRepository extends R2dbcRepository<Item, Long> {
     @Query("SELECT COUNT(*) FROM items")
     Mono<Long> countAll();
 
+    // Keyset (seek) pagination: rows strictly after/before a (sort key, id) boundary.
+    // The "before" variants return rows in descending order.
+
+    @Query("SELECT * FROM items WHERE id > :id ORDER BY id ASC LIMIT :limit")
+    Flux<Item> findByIdAfter(long id, int limit);
+
+    @Query("SELECT * FROM items WHERE id < :id ORDER BY id DESC LIMIT :limit")
+    Flux<Item> findByIdBefore(long id, int limit);
+
+    @Query("SELECT * FROM items WHERE title > :title OR (title = :title AND id > :id) ORDER BY title ASC, id ASC LIMIT :limit")
+    Flux<Item> findByTitleAfter(String title, long id, int limit);
+
+    @Query("SELECT * FROM items WHERE title < :title OR (title = :title AND id < :id) ORDER BY title DESC, id DESC LIMIT :limit")
+    Flux<Item> findByTitleBefore(String title, long id, int limit);
+
+    @Query("SELECT * FROM items WHERE price > :price OR (price = :price AND id > :id) ORDER BY price ASC, id ASC LIMIT :limit")
+    Flux<Item> findByPriceAfter(double price, long id, int limit);
+
+    @Query("SELECT * FROM items WHERE price < :price OR (price = :price AND id < :id) ORDER BY price DESC, id DESC LIMIT :limit")
+    Flux<Item> findByPriceBefore(double price, long id, int limit);
+
+    @Query("SELECT * FROM items WHERE (LOWER(title) LIKE LOWER(CONCAT('%', :query, '%')) OR LOWER(description) LIKE LOWER(CONCAT('%', :query, '%'))) AND id > :id ORDER BY id ASC LIMIT :limit")
+    Flux<Item> findByTitleOrDescriptionContainingIgnoreCaseAfter(String query, long id, int limit);
+
+    @Query("SELECT * FROM items WHERE (LOWER(title) LIKE LOWER(CONCAT('%', :query, '%')) OR LOWER(description) LIKE LOWER(CONCAT('%', :query, '%'))) AND id < :id ORDER BY id DESC LIMIT :limit")
+    Flux<Item> findByTitleOrDescriptionContainingIgnoreCaseBefore(String query, long id, int limit);
+
     @Query("SELECT * FROM items WHERE id IN (:ids)")
-    Flux<Item> findAllItemsByIds(Set<Long> ids);
+    Flux<Item> findAllItemsByIds(Collection<Long> ids);
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package io.github.danjos.intershop.repository;
+
+import io.github.danjos.intershop.model.OrderItem;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface OrderItemBatchRepository {
+
+    /**
+     * Inserts all order lines as one batched statement and returns them with
+     * their generated ids, in the given order.
+     */
+    Flux<OrderItem> insertAll(List<OrderItem> orderItems);
+}
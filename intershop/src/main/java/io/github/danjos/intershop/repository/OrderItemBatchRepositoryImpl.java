@@ -0,0 +1,50 @@
+package io.github.danjos.intershop.repository;
+
+import io.github.danjos.intershop.model.OrderItem;
+import io.r2dbc.spi.Statement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * One {@link Statement} with a binding per line ({@link Statement#add()}), so
+ * the whole order goes to the database in a single round trip. Runs on the
+ * caller's transactional connection when there is one.
+ */
+@RequiredArgsConstructor
+public class OrderItemBatchRepositoryImpl implements OrderItemBatchRepository {
+
+    static final String INSERT_SQL =
+            "INSERT INTO order_items (order_id, item_id, quantity, price) VALUES ($1, $2, $3, $4)";
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<OrderItem> insertAll(List<OrderItem> orderItems) {
+        if (orderItems.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.inConnectionMany(connection -> {
+                    Statement statement = connection.createStatement(INSERT_SQL).returnGeneratedValues("id");
+                    for (int i = 0; i < orderItems.size(); i++) {
+                        if (i > 0) {
+                            statement.add();
+                        }
+                        OrderItem orderItem = orderItems.get(i);
+                        statement.bind(0, orderItem.getOrderId())
+                                .bind(1, orderItem.getItemId())
+                                .bind(2, orderItem.getQuantity())
+                                .bind(3, orderItem.getPrice());
+                    }
+                    // One result per binding, in binding order
+                    return Flux.from(statement.execute())
+                            .concatMap(result -> result.map((row, metadata) -> row.get(0, Long.class)));
+                })
+                .zipWithIterable(orderItems, (id, orderItem) -> {
+                    orderItem.setId(id);
+                    return orderItem;
+                });
+    }
+}
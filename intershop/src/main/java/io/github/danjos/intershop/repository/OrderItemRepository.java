@@ -5,10 +5,14 @@ import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 
+import java.util.Collection;
+
 @Repository
-public interface OrderItemRepository extends ReactiveCrudRepository<OrderItem, Long> {
+public interface OrderItemRepository extends ReactiveCrudRepository<OrderItem, Long>, OrderItemBatchRepository {
 
     Flux<OrderItem> findByOrderId(Long orderId);
+
+    Flux<OrderItem> findByOrderIdIn(Collection<Long> orderIds);
     
     Flux<OrderItem> findByItemId(Long itemId);
     
@@ -1,13 +1,29 @@
 package io.github.danjos.intershop.repository;
 
 import io.github.danjos.intershop.model.Order;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @Repository
 public interface OrderRepository extends ReactiveCrudRepository<Order, Long> {
 
     Flux<Order> findByUserId(Long userId);
 
+    Flux<Order> findByUserIdAndStatusNot(Long userId, String status);
+
+    Mono<Order> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    @Modifying
+    @Query("UPDATE orders SET status = :status WHERE id = :id")
+    Mono<Integer> updateStatus(Long id, String status);
+
+    // Lines go with the order through ON DELETE CASCADE
+    @Modifying
+    @Query("DELETE FROM orders WHERE id = :id AND status = :status")
+    Mono<Integer> deleteByIdAndStatus(Long id, String status);
+
 }
\ No newline at end of file
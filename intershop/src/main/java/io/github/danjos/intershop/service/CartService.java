@@ -1,103 +1,98 @@
 package io.github.danjos.intershop.service;
 
 import io.github.danjos.intershop.dto.CartItemDto;
-import io.github.danjos.intershop.model.CartItem;
-import io.github.danjos.intershop.repository.CartItemRepository;
+import io.github.danjos.intershop.dto.CartSnapshot;
+import io.github.danjos.intershop.model.Item;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class CartService {
     private final ItemService itemService;
     private final PaymentClientService paymentClientService;
-    private final CartItemRepository cartItemRepository;
+    private final CartStore cartStore;
 
-    // Методы для работы с корзиной пользователя в БД
+    private static final String SNAPSHOT_ATTRIBUTE = CartService.class.getName() + ".snapshot.";
+
+    // Методы для работы с корзиной пользователя
     public Mono<Void> addItemToCart(Long itemId, Long userId) {
-        return cartItemRepository.findByUserIdAndItemId(userId, itemId)
-            .flatMap(existingItem -> {
-                // Item exists, increment quantity
-                existingItem.setQuantity(existingItem.getQuantity() + 1);
-                return cartItemRepository.save(existingItem);
-            })
-            .switchIfEmpty(Mono.defer(() -> {
-                // Item doesn't exist, create new one with quantity 1
-                CartItem newCartItem = new CartItem();
-                newCartItem.setUserId(userId);
-                newCartItem.setItemId(itemId);
-                newCartItem.setQuantity(1);
-                return cartItemRepository.save(newCartItem);
-            }))
-            .then();
+        return cartStore.increment(userId, itemId);
     }
 
     public Mono<Void> removeItemFromCart(Long itemId, Long userId) {
-        return cartItemRepository.findByUserIdAndItemId(userId, itemId)
-            .flatMap(cartItem -> {
-                if (cartItem.getQuantity() > 1) {
-                    cartItem.setQuantity(cartItem.getQuantity() - 1);
-                    return cartItemRepository.save(cartItem);
-                } else {
-                    return cartItemRepository.delete(cartItem);
-                }
-            })
-            .then();
+        return cartStore.decrement(userId, itemId);
     }
 
     public Mono<Void> deleteItemFromCart(Long itemId, Long userId) {
-        return cartItemRepository.deleteByUserIdAndItemId(userId, itemId);
+        return cartStore.remove(userId, itemId);
     }
 
-    public Mono<List<CartItemDto>> getCartItemsReactive(Long userId) {
-        return cartItemRepository.findByUserId(userId)
-            .collectList()
-            .flatMap(cartItems -> {
-                if (cartItems.isEmpty()) {
-                    return Mono.just(List.<CartItemDto>of());
+    /**
+     * Loads the cart once: the quantities from the cart store, then their
+     * items in a single batch lookup, joined by item id. Lines keep the
+     * store's order; lines whose item no longer exists are dropped.
+     */
+    public Mono<CartSnapshot> getCartSnapshot(Long userId) {
+        return cartStore.quantities(userId)
+            .flatMap(quantities -> {
+                if (quantities.isEmpty()) {
+                    return Mono.just(CartSnapshot.empty());
                 }
-                
-                Set<Long> itemIds = cartItems.stream()
-                    .map(CartItem::getItemId)
-                    .collect(Collectors.toSet());
-                
-                return itemService.getItemByIds(itemIds)
-                    .map(item -> {
-                        CartItem cartItem = cartItems.stream()
-                            .filter(ci -> ci.getItemId().equals(item.getId()))
-                            .findFirst()
-                            .orElse(null);
-                        
-                        int quantity = cartItem != null ? cartItem.getQuantity() : 0;
-                        return new CartItemDto(item, quantity);
-                    })
-                    .collectList();
+                return itemService.getItemByIds(quantities.keySet())
+                    .collectList()
+                    .map(items -> assemble(quantities, items));
             });
     }
 
+    /**
+     * The cart snapshot for this exchange: loaded on first subscription and
+     * replayed to every later consumer of the same request, so a page that
+     * needs the lines, the total and the checkout flag reads the cart once.
+     */
+    @SuppressWarnings("unchecked")
+    public Mono<CartSnapshot> getCartSnapshot(ServerWebExchange exchange, Long userId) {
+        return (Mono<CartSnapshot>) exchange.getAttributes()
+            .computeIfAbsent(SNAPSHOT_ATTRIBUTE + userId, key -> getCartSnapshot(userId).cache());
+    }
+
+    static CartSnapshot assemble(Map<Long, Integer> quantities, List<Item> items) {
+        List<CartItemDto> lines = new ArrayList<>(items.size());
+        for (Item item : items) {
+            Integer quantity = quantities.get(item.getId());
+            if (quantity != null) {
+                lines.add(new CartItemDto(item, quantity));
+            }
+        }
+        return new CartSnapshot(lines);
+    }
+
+    public Mono<List<CartItemDto>> getCartItemsReactive(Long userId) {
+        return getCartSnapshot(userId).map(CartSnapshot::getLines);
+    }
+
     public Mono<Double> getCartTotalReactive(Long userId) {
-        return getCartItemsReactive(userId)
-            .map(cartItems -> cartItems.stream()
-                .mapToDouble(item -> item.getPrice() * item.getCount())
-                .sum());
+        return getCartSnapshot(userId).map(CartSnapshot::getTotal);
     }
     
     public Mono<Boolean> isCheckoutEnabled(Long userId) {
-        return getCartTotalReactive(userId)
-            .map(cartTotal -> {
-                // For now, always allow checkout since we don't have user context here
-                // The actual balance check will be done in the cart controller
-                return true;
-            })
+        return getCartSnapshot(userId)
+            .map(this::isCheckoutEnabled)
             .onErrorReturn(false);
     }
 
+    public boolean isCheckoutEnabled(CartSnapshot snapshot) {
+        // For now, always allow checkout since we don't have user context here
+        // The actual balance check will be done in the cart controller
+        return true;
+    }
+
     // Методы для очистки корзины пользователя (например, после создания заказа)
     public Mono<Void> clearUserCart(Long userId) {
-        return cartItemRepository.deleteByUserId(userId);
+        return cartStore.clear(userId);
     }
 }
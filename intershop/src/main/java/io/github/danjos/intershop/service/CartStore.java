@@ -0,0 +1,32 @@
+package io.github.danjos.intershop.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Storage of cart quantities per user and item. {@link CartService} builds
+ * everything else (items, totals, snapshots) on top of it.
+ * <p>
+ * Implementations are selected with {@code cart.store}: {@code database}
+ * (the {@code cart_items} table, default) or {@code redis} (one hash per user).
+ * Every mutation is a single atomic operation on the store.
+ */
+public interface CartStore {
+
+    Mono<Void> increment(Long userId, Long itemId);
+
+    /**
+     * Removes one unit; the line disappears with its last unit.
+     */
+    Mono<Void> decrement(Long userId, Long itemId);
+
+    Mono<Void> remove(Long userId, Long itemId);
+
+    /**
+     * Quantities by item id in a stable display order; empty for an empty cart.
+     */
+    Mono<Map<Long, Integer>> quantities(Long userId);
+
+    Mono<Void> clear(Long userId);
+}
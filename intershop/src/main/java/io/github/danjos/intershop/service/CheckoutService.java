@@ -0,0 +1,105 @@
+package io.github.danjos.intershop.service;
+
+import io.github.danjos.intershop.dto.CartSnapshot;
+import io.github.danjos.intershop.exception.InsufficientBalanceException;
+import io.github.danjos.intershop.model.Order;
+import io.github.danjos.intershop.model.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+/**
+ * Checkout of a cart. The balance is owned by the payment service, so the
+ * debit cannot share a transaction with the order; checkout runs in three
+ * steps instead, each of which can be repeated safely:
+ * <ol>
+ * <li>The order is committed as {@link Order#PENDING}. It claims the token
+ * issued with the cart page through a unique index on
+ * {@code (user_id, idempotency_key)}.</li>
+ * <li>The payment service debits the total. The debit is keyed by the user
+ * and the token, not by the order, so the payment service charges a token at
+ * most once and answers a repeated debit with the original one.</li>
+ * <li>The order is marked {@link Order#PAID} and the cart is cleared, in one
+ * transaction.</li>
+ * </ol>
+ * A declined debit deletes the pending order. Any other failure after step 1
+ * (a lost response, a failed commit) leaves the order pending; submitting the
+ * same token again resumes it from step 2. A repeated or concurrent submit
+ * of a paid order returns it without charging again. With the Redis cart
+ * store the cart clear is not part of the transaction of step 3.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CheckoutService {
+    private final OrderService orderService;
+    private final PaymentClientService paymentClientService;
+    private final CartService cartService;
+    private final TransactionalOperator transactionalOperator;
+
+    /**
+     * Places and pays the order for the cart, or returns the order already
+     * placed with this token, finishing its payment if that was interrupted.
+     * Completes empty when the cart is empty and nothing was placed; the cart
+     * is only read when the token is new.
+     */
+    public Mono<Order> checkout(User user, Mono<CartSnapshot> cart, String idempotencyKey) {
+        return orderService.findByIdempotencyKey(user.getId(), idempotencyKey)
+            .flatMap(order -> resume(user, order, idempotencyKey))
+            .switchIfEmpty(cart
+                .filter(snapshot -> !snapshot.isEmpty())
+                .flatMap(snapshot -> placeOrder(user, snapshot, idempotencyKey)))
+            // A concurrent submit with the same token committed its order first
+            .onErrorResume(DataIntegrityViolationException.class, e ->
+                orderService.findByIdempotencyKey(user.getId(), idempotencyKey)
+                    .switchIfEmpty(Mono.error(e))
+                    .flatMap(order -> resume(user, order, idempotencyKey)));
+    }
+
+    private Mono<Order> placeOrder(User user, CartSnapshot cart, String idempotencyKey) {
+        return orderService.createOrderFromCart(cart.quantities(), user, idempotencyKey)
+            .as(transactionalOperator::transactional)
+            .flatMap(order -> pay(user, order, cart.getTotalAmount(), idempotencyKey));
+    }
+
+    private Mono<Order> resume(User user, Order order, String idempotencyKey) {
+        if (!Order.PENDING.equals(order.getStatus())) {
+            log.info("Checkout {} for user {} already placed order {}",
+                idempotencyKey, user.getUsername(), order.getId());
+            return Mono.just(order);
+        }
+        log.info("Checkout {} for user {} resumes the payment of order {}",
+            idempotencyKey, user.getUsername(), order.getId());
+        // The lines hold the prices of the first attempt, so the total is the same
+        return orderService.getOrderById(order.getId())
+            .flatMap(pending -> pay(user, pending, pending.getTotalAmount(), idempotencyKey));
+    }
+
+    private Mono<Order> pay(User user, Order order, BigDecimal total, String idempotencyKey) {
+        return paymentClientService.debitBalance(user.getUsername(), total, paymentId(user, idempotencyKey))
+            .switchIfEmpty(Mono.defer(() -> orderService.deletePendingOrder(order.getId())
+                .then(Mono.error(new InsufficientBalanceException(
+                    "Insufficient balance for user " + user.getUsername() + " to pay " + total)))))
+            // Only touch the cart once the debit went through
+            .then(Mono.defer(() -> orderService.markPaid(order.getId())
+                .then(cartService.clearUserCart(user.getId()))
+                .as(transactionalOperator::transactional)))
+            .then(Mono.fromSupplier(() -> {
+                order.setStatus(Order.PAID);
+                return order;
+            }));
+    }
+
+    /**
+     * The payment reference of a checkout: the same for every attempt with
+     * one token, unlike the order id, which a rolled back attempt gives up.
+     */
+    static String paymentId(User user, String idempotencyKey) {
+        return "checkout-" + user.getId() + "-" + idempotencyKey;
+    }
+}
@@ -1,6 +1,7 @@
 package io.github.danjos.intershop.service;
 
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -12,7 +13,7 @@ import io.github.danjos.intershop.model.User;
 import java.util.Collections;
 
 @Service
-public class CustomUserDetailsService implements ReactiveUserDetailsService {
+public class CustomUserDetailsService implements ReactiveUserDetailsService, ReactiveUserDetailsPasswordService {
     
     private final UserRepository userRepository;
     
@@ -29,4 +30,20 @@ public class CustomUserDetailsService implements ReactiveUserDetailsService {
                 .authorities(Collections.singletonList(new SimpleGrantedAuthority("USER")))
                 .build());
     }
+
+    /**
+     * Stores a rehash made at login when the stored hash is weaker than the
+     * configured encoder (see {@code security.password.bcrypt-strength}).
+     */
+    @Override
+    public Mono<UserDetails> updatePassword(UserDetails user, String newPassword) {
+        return userRepository.findByUsername(user.getUsername())
+            .flatMap(userModel -> {
+                userModel.setPassword(newPassword);
+                return userRepository.save(userModel);
+            })
+            .map(saved -> org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build());
+    }
 }
@@ -0,0 +1,53 @@
+package io.github.danjos.intershop.service;
+
+import io.github.danjos.intershop.repository.CartItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cart store on the {@code cart_items} table.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.store", havingValue = "database", matchIfMissing = true)
+@RequiredArgsConstructor
+public class DatabaseCartStore implements CartStore {
+    private final CartItemRepository cartItemRepository;
+
+    @Override
+    public Mono<Void> increment(Long userId, Long itemId) {
+        return cartItemRepository.incrementQuantity(userId, itemId)
+            // Two first clicks can both take the insert branch; the loser retries as an update
+            .retryWhen(Retry.max(1).filter(DataIntegrityViolationException.class::isInstance))
+            .then();
+    }
+
+    @Override
+    public Mono<Void> decrement(Long userId, Long itemId) {
+        return cartItemRepository.decrementQuantityOrDelete(userId, itemId)
+            .then();
+    }
+
+    @Override
+    public Mono<Void> remove(Long userId, Long itemId) {
+        return cartItemRepository.deleteByUserIdAndItemId(userId, itemId);
+    }
+
+    @Override
+    public Mono<Map<Long, Integer>> quantities(Long userId) {
+        return cartItemRepository.findByUserId(userId)
+            .collect(LinkedHashMap::new, (quantities, cartItem) ->
+                quantities.merge(cartItem.getItemId(), cartItem.getQuantity(), Integer::sum));
+    }
+
+    @Override
+    public Mono<Void> clear(Long userId) {
+        return cartItemRepository.deleteByUserId(userId);
+    }
+}
@@ -0,0 +1,148 @@
+package io.github.danjos.intershop.service;
+
+import io.github.danjos.intershop.model.Item;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Result assembly for one {@link ItemService#getItemByIds} call.
+ * <p>
+ * Each requested id owns a slot in request order. Cached values and database
+ * rows are placed into their slot by the item's own id (via an open-addressing
+ * id → slot table), never by position in the reply, so dropped or reordered
+ * replies cannot shift results onto the wrong id. Apart from the returned
+ * lists, lookups allocate nothing per element.
+ */
+final class ItemBatchLookup {
+
+    private static final int NO_SLOT = -1;
+
+    private final long[] ids;
+    private final Item[] slots;
+    private final long[] tableKeys;
+    private final int[] tableSlots;
+    private final int tableMask;
+    private int size;
+    private int filled;
+
+    ItemBatchLookup(Collection<Long> requestedIds) {
+        int capacity = requestedIds.size();
+        this.ids = new long[capacity];
+        this.slots = new Item[capacity];
+
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+        this.tableKeys = new long[tableSize];
+        this.tableSlots = new int[tableSize];
+        this.tableMask = tableSize - 1;
+        Arrays.fill(tableSlots, NO_SLOT);
+
+        for (Long id : requestedIds) {
+            if (id != null && insert(id, size)) {
+                ids[size++] = id;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int filled() {
+        return filled;
+    }
+
+    /**
+     * Cache keys for the ids that are still missing, in request order.
+     */
+    List<String> cacheKeys(String prefix) {
+        List<String> keys = new ArrayList<>(size - filled);
+        for (int i = 0; i < size; i++) {
+            if (slots[i] == null) {
+                keys.add(prefix + ids[i]);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Places every non-null cached value into the slot of its own id; values for
+     * ids that were not requested are ignored.
+     */
+    void fillAll(List<?> values) {
+        for (Object value : values) {
+            if (value instanceof Item item) {
+                fill(item);
+            }
+        }
+    }
+
+    boolean fill(Item item) {
+        if (item == null || item.getId() == null) {
+            return false;
+        }
+        int slot = slotOf(item.getId());
+        if (slot == NO_SLOT) {
+            return false;
+        }
+        if (slots[slot] == null) {
+            filled++;
+        }
+        slots[slot] = item;
+        return true;
+    }
+
+    List<Long> missingIds() {
+        List<Long> missing = new ArrayList<>(size - filled);
+        for (int i = 0; i < size; i++) {
+            if (slots[i] == null) {
+                missing.add(ids[i]);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Items found so far, in request order. Ids without an item are skipped.
+     */
+    List<Item> result() {
+        List<Item> result = new ArrayList<>(filled);
+        for (int i = 0; i < size; i++) {
+            if (slots[i] != null) {
+                result.add(slots[i]);
+            }
+        }
+        return result;
+    }
+
+    private boolean insert(long id, int slot) {
+        int index = indexFor(id);
+        while (tableSlots[index] != NO_SLOT) {
+            if (tableKeys[index] == id) {
+                return false;
+            }
+            index = (index + 1) & tableMask;
+        }
+        tableKeys[index] = id;
+        tableSlots[index] = slot;
+        return true;
+    }
+
+    private int slotOf(long id) {
+        int index = indexFor(id);
+        while (tableSlots[index] != NO_SLOT) {
+            if (tableKeys[index] == id) {
+                return tableSlots[index];
+            }
+            index = (index + 1) & tableMask;
+        }
+        return NO_SLOT;
+    }
+
+    private int indexFor(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & tableMask;
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.danjos.intershop.service;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.danjos.intershop.repository.ItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Cached item counts for the pagination UI.
+ * <p>
+ * Page requests only need a total when there is a next page; they read it
+ * from here instead of running a COUNT each time. A count older than the
+ * refresh interval is still served while it is reloaded in the background,
+ * and entries nobody asked for within the TTL are dropped.
+ */
+@Component
+@Slf4j
+public class ItemCountCache {
+
+    // The whole catalog; search queries are keyed by their case-folded text
+    private static final String CATALOG_KEY = "";
+
+    private final ItemRepository itemRepository;
+    private final AsyncLoadingCache<String, Long> counts;
+
+    public ItemCountCache(
+            ItemRepository itemRepository,
+            @Value("${cache.count.max-size:1000}") long maxSize,
+            @Value("${cache.count.refresh:30s}") Duration refresh,
+            @Value("${cache.count.ttl:10m}") Duration ttl) {
+        this.itemRepository = itemRepository;
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(refresh)
+                .expireAfterWrite(ttl)
+                .buildAsync((key, executor) -> load(key).toFuture());
+    }
+
+    public Mono<Long> catalogSize() {
+        return get(CATALOG_KEY);
+    }
+
+    /**
+     * Number of items matching the SQL substring search for {@code query}.
+     */
+    public Mono<Long> searchMatches(String query) {
+        return get(query.toLowerCase(Locale.ROOT));
+    }
+
+    public void invalidateAll() {
+        counts.synchronous().invalidateAll();
+    }
+
+    private Mono<Long> get(String key) {
+        return Mono.fromFuture(() -> counts.get(key));
+    }
+
+    private Mono<Long> load(String key) {
+        Mono<Long> count = CATALOG_KEY.equals(key)
+                ? itemRepository.countAll()
+                : itemRepository.countByTitleOrDescriptionContainingIgnoreCase(key);
+        return count
+                .defaultIfEmpty(0L)
+                .doOnNext(total -> log.info("Counted {} items for {}", total, CATALOG_KEY.equals(key) ? "catalog" : "search: " + key));
+    }
+}
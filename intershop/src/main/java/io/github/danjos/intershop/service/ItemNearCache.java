@@ -0,0 +1,112 @@
+package io.github.danjos.intershop.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.danjos.intershop.model.Item;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * In-process L1 cache for {@link Item}s in front of the Redis L2 cache.
+ * <p>
+ * Entries are bounded by size and expire after a short TTL. Evictions are
+ * broadcast over a Redis pub/sub channel so every node drops its local copy;
+ * the message is either an item id or {@code *} for everything.
+ */
+@Component
+@Slf4j
+public class ItemNearCache {
+
+    private static final String INVALIDATE_ALL = "*";
+
+    private final Cache<Long, Item> cache;
+    private final ReactiveRedisTemplate<String, Object> redisTemplate;
+    private final String channel;
+    private Disposable subscription;
+
+    public ItemNearCache(
+            ReactiveRedisTemplate<String, Object> redisTemplate,
+            @Value("${cache.item.local.max-size:10000}") long maxSize,
+            @Value("${cache.item.local.ttl:60s}") Duration ttl,
+            @Value("${cache.item.invalidation-channel:intershop:item-cache:invalidate}") String channel) {
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @PostConstruct
+    void subscribe() {
+        // Anything published while we were disconnected is lost, so start clean on every (re)subscribe
+        subscription = redisTemplate.listenToChannel(channel)
+                .doOnSubscribe(s -> cache.invalidateAll())
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(message -> onInvalidation(String.valueOf(message.getMessage())),
+                        e -> log.error("Item cache invalidation listener stopped", e));
+    }
+
+    @PreDestroy
+    void unsubscribe() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    public Item get(Long id) {
+        return cache.getIfPresent(id);
+    }
+
+    public Map<Long, Item> getAll(Iterable<Long> ids) {
+        return cache.getAllPresent(ids);
+    }
+
+    public void put(Item item) {
+        if (item != null && item.getId() != null) {
+            cache.put(item.getId(), item);
+        }
+    }
+
+    /**
+     * Drops the item locally and tells the other nodes to do the same.
+     */
+    public Mono<Void> evict(Long id) {
+        cache.invalidate(id);
+        return publish(String.valueOf(id));
+    }
+
+    public Mono<Void> evictAll() {
+        cache.invalidateAll();
+        return publish(INVALIDATE_ALL);
+    }
+
+    private Mono<Void> publish(String message) {
+        return redisTemplate.convertAndSend(channel, message)
+                .doOnError(e -> log.warn("Failed to publish item cache invalidation {}: {}", message, e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private void onInvalidation(String message) {
+        if (INVALIDATE_ALL.equals(message)) {
+            cache.invalidateAll();
+            return;
+        }
+        try {
+            cache.invalidate(Long.valueOf(message));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed item cache invalidation: {}", message);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package io.github.danjos.intershop.service;
+
+import io.github.danjos.intershop.model.Item;
+import io.github.danjos.intershop.repository.ItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-process inverted index over item titles and descriptions.
+ * <p>
+ * Text is split into letter/digit tokens and case-folded; every query token
+ * must be a prefix of some token of the item (so {@code "lap"} finds
+ * "Laptop"). Matching ids are returned in ascending order, the same order the
+ * SQL search uses, and are meant to be hydrated through the item cache.
+ * <p>
+ * The index is built when the application is ready and kept up to date
+ * through {@link #index(Item)} and {@link #remove(Long)}; until the first
+ * build completes {@link #isReady()} is false and callers use the database.
+ */
+@Component
+@Slf4j
+public class ItemSearchIndex {
+
+    private final ItemRepository itemRepository;
+    private final boolean enabled;
+    private volatile Postings postings = new Postings();
+    private volatile boolean ready;
+
+    // Guards index/remove against the swap at the end of a rebuild
+    private final Object updateLock = new Object();
+    // One change log per rebuild in progress: id -> latest item, or null when removed
+    private final List<Map<Long, Item>> rebuildLogs = new ArrayList<>();
+
+    public ItemSearchIndex(ItemRepository itemRepository,
+                           @Value("${search.index.enabled:true}") boolean enabled) {
+        this.itemRepository = itemRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void buildOnStartup() {
+        if (!enabled) {
+            log.info("Item search index is disabled, searching the database");
+            return;
+        }
+        rebuild().subscribe(null, e -> log.error("Failed to build item search index", e));
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Reads the whole catalog into a fresh index and swaps it in, so searches
+     * keep using the previous one while the new one is built.
+     * <p>
+     * Items indexed or removed while the catalog is being read are recorded
+     * and replayed onto the fresh index right before the swap, so they win
+     * over the possibly older rows of the scan and are not lost.
+     */
+    public Mono<Void> rebuild() {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            long startedAt = System.currentTimeMillis();
+            Postings fresh = new Postings();
+            Map<Long, Item> changes = new HashMap<>();
+            synchronized (updateLock) {
+                rebuildLogs.add(changes);
+            }
+            return itemRepository.findAll()
+                    .doOnNext(fresh::add)
+                    .then(Mono.fromRunnable(() -> {
+                        int replayed;
+                        synchronized (updateLock) {
+                            replayed = changes.size();
+                            changes.forEach((id, item) -> {
+                                if (item == null) {
+                                    fresh.remove(id);
+                                } else {
+                                    fresh.add(item);
+                                }
+                            });
+                            postings = fresh;
+                        }
+                        ready = true;
+                        log.info("Indexed {} items for search in {} ms ({} changes replayed)",
+                                fresh.documentCount(), System.currentTimeMillis() - startedAt, replayed);
+                    }))
+                    .doFinally(signal -> {
+                        synchronized (updateLock) {
+                            // By identity: two logs may hold equal contents
+                            rebuildLogs.removeIf(registered -> registered == changes);
+                        }
+                    })
+                    .then();
+        });
+    }
+
+    /**
+     * Adds the item or replaces its previous tokens.
+     */
+    public void index(Item item) {
+        if (item != null && item.getId() != null) {
+            synchronized (updateLock) {
+                postings.add(item);
+                rebuildLogs.forEach(changes -> changes.put(item.getId(), item));
+            }
+        }
+    }
+
+    public void remove(Long id) {
+        if (id != null) {
+            synchronized (updateLock) {
+                postings.remove(id);
+                rebuildLogs.forEach(changes -> changes.put(id, null));
+            }
+        }
+    }
+
+    /**
+     * Ids of the items matching every token of {@code query}, ascending.
+     */
+    public long[] search(String query) {
+        return postings.search(tokenize(query));
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        String folded = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Postings {
+        // Sorted by token, so all tokens with a given prefix form one contiguous range
+        private final ConcurrentSkipListMap<String, NavigableSet<Long>> idsByToken = new ConcurrentSkipListMap<>();
+        private final ConcurrentMap<Long, Set<String>> tokensById = new ConcurrentHashMap<>();
+
+        synchronized void add(Item item) {
+            Set<String> tokens = tokenize(item.getTitle());
+            tokens.addAll(tokenize(item.getDescription()));
+            removeTokens(item.getId(), tokensById.put(item.getId(), tokens));
+            for (String token : tokens) {
+                idsByToken.computeIfAbsent(token, t -> new ConcurrentSkipListSet<>()).add(item.getId());
+            }
+        }
+
+        synchronized void remove(Long id) {
+            removeTokens(id, tokensById.remove(id));
+        }
+
+        private void removeTokens(Long id, Set<String> tokens) {
+            if (tokens == null) {
+                return;
+            }
+            for (String token : tokens) {
+                NavigableSet<Long> ids = idsByToken.get(token);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        idsByToken.remove(token, ids);
+                    }
+                }
+            }
+        }
+
+        int documentCount() {
+            return tokensById.size();
+        }
+
+        long[] search(Set<String> terms) {
+            if (terms.isEmpty()) {
+                return new long[0];
+            }
+            // Longer prefixes match fewer tokens, so start from them and stop on the first empty intersection
+            List<String> ordered = new ArrayList<>(terms);
+            ordered.sort(Comparator.comparingInt(String::length).reversed());
+            TreeSet<Long> result = null;
+            for (String term : ordered) {
+                TreeSet<Long> matches = new TreeSet<>();
+                for (NavigableSet<Long> ids : idsByToken.subMap(term, true, term + Character.MAX_VALUE, true).values()) {
+                    if (result == null) {
+                        matches.addAll(ids);
+                    } else {
+                        for (Long id : ids) {
+                            if (result.contains(id)) {
+                                matches.add(id);
+                            }
+                        }
+                    }
+                }
+                result = matches;
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            long[] ids = new long[result.size()];
+            int i = 0;
+            for (Long id : result) {
+                ids[i++] = id;
+            }
+            return ids;
+        }
+    }
+}
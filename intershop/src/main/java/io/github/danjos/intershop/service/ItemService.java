@@ -4,22 +4,34 @@ import io.github.danjos.intershop.dto.SearchResultCache;
 import io.github.danjos.intershop.exception.NotFoundException;
 import io.github.danjos.intershop.model.Item;
 import io.github.danjos.intershop.repository.ItemRepository;
+import io.github.danjos.intershop.util.PageCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @RequiredArgsConstructor
@@ -27,31 +39,151 @@ import java.util.Set;
 public class ItemService {
     private final ItemRepository itemRepository;
     private final ReactiveRedisTemplate<String, Object> redisTemplate;
+    private final ReactiveStringRedisTemplate stringRedisTemplate;
+    private final ItemNearCache nearCache;
+    private final ItemSearchIndex searchIndex;
+    private final ItemCountCache countCache;
+    private final SingleFlight<String, Item> itemLoads = new SingleFlight<>();
+    private final SingleFlight<String, Page<Item>> searchLoads = new SingleFlight<>();
+
+    @Value("${cache.search.early-refresh-beta:1.0}")
+    private double earlyRefreshBeta;
     
     private static final String ITEM_CACHE_PREFIX = "item:";
+    private static final String SEARCH_CACHE_PREFIX = "search:";
+    private static final String SEARCH_TAG_PREFIX = "search-tag:item:";
+    private static final String SEARCH_LISTING_TAG = "search-tag:listing";
+    private static final int SCAN_BATCH_SIZE = 1000;
     private static final Duration CACHE_TTL = Duration.ofMinutes(5);
+    // Listing pages are all evicted on any item change, so they can live much longer
+    private static final Duration LISTING_CACHE_TTL = Duration.ofHours(1);
+    // A new or renamed item can start matching a query without being on its
+    // cached pages, which no tag catches, so query pages age out sooner
+    private static final Duration QUERY_CACHE_TTL = CACHE_TTL;
+    // Tags must outlive every page they point to
+    private static final Duration SEARCH_TAG_TTL = LISTING_CACHE_TTL;
+
+    /**
+     * Adds the page key (ARGV[1]) to every tag set in KEYS and pushes each
+     * tag's expiry (ARGV[2], seconds) forward: one round trip per page.
+     */
+    private static final RedisScript<Long> TAG_SEARCH_PAGE = RedisScript.of(
+        "for _, tag in ipairs(KEYS) do " +
+        "redis.call('SADD', tag, ARGV[1]) " +
+        "redis.call('EXPIRE', tag, ARGV[2]) " +
+        "end " +
+        "return #KEYS", Long.class);
 
     public Mono<Page<Item>> searchItems(String query, int pageNumber, int pageSize, String sort) {
-        String cacheKey = String.format("search:%s:%d:%d:%s", 
+        String cacheKey = String.format(SEARCH_CACHE_PREFIX + "%s:%d:%d:%s", 
             query != null ? query : "NO", pageNumber, pageSize, sort != null ? sort : "DEFAULT");
         
         return redisTemplate.opsForValue().get(cacheKey)
             .map(cachedSearchData -> {
                 log.info("Cache hit for search: {}", cacheKey);
-                return ((SearchResultCache) cachedSearchData).toPage();
+                SearchResultCache cached = (SearchResultCache) cachedSearchData;
+                if (shouldRefreshEarly(cached)) {
+                    log.info("Refreshing search ahead of expiry: {}", cacheKey);
+                    loadSearch(cacheKey, query, pageNumber, pageSize, sort)
+                        .subscribe(page -> { }, e -> log.warn("Early refresh failed for {}: {}", cacheKey, e.getMessage()));
+                }
+                return cached.toPage();
             })
-            .switchIfEmpty(
-                performSearch(query, pageNumber, pageSize, sort)
-                    .flatMap(page -> {
-                        log.info("Cache miss for search: {}, storing in cache", cacheKey);
-                        SearchResultCache cacheData = SearchResultCache.fromPage(page);
-                        return redisTemplate.opsForValue()
-                            .set(cacheKey, cacheData, CACHE_TTL)
-                            .thenReturn(page);
-                    })
-            );
+            .switchIfEmpty(Mono.defer(() -> loadSearch(cacheKey, query, pageNumber, pageSize, sort)));
+    }
+
+    /**
+     * Runs the search and caches the page. Concurrent misses for the same key
+     * share a single database round trip.
+     */
+    private Mono<Page<Item>> loadSearch(String cacheKey, String query, int pageNumber, int pageSize, String sort) {
+        return searchLoads.execute(cacheKey, () -> {
+            long startedAt = System.currentTimeMillis();
+            return performSearch(query, pageNumber, pageSize, sort)
+                .flatMap(page -> {
+                    log.info("Cache miss for search: {}, storing in cache", cacheKey);
+                    boolean listing = query == null || query.isEmpty();
+                    Duration ttl = listing ? LISTING_CACHE_TTL : QUERY_CACHE_TTL;
+                    long now = System.currentTimeMillis();
+                    SearchResultCache cacheData = SearchResultCache.fromPage(
+                        page, now - startedAt, now + ttl.toMillis());
+                    return redisTemplate.opsForValue()
+                        .set(cacheKey, cacheData, ttl)
+                        .then(tagSearchPage(cacheKey, page.getContent(), listing))
+                        .thenReturn(page);
+                });
+        });
     }
 
+    /**
+     * Probabilistic early expiration ("XFetch"): the closer an entry is to its
+     * expiry, and the longer it took to compute, the more likely a hit triggers
+     * a background refresh, so hot keys are recomputed by one caller before
+     * they expire for everyone. A beta of 0 disables it.
+     */
+    private boolean shouldRefreshEarly(SearchResultCache cached) {
+        if (earlyRefreshBeta <= 0 || cached.getExpiresAtMillis() <= 0) {
+            return false;
+        }
+        double gap = cached.getComputeMillis() * earlyRefreshBeta * -Math.log(ThreadLocalRandom.current().nextDouble());
+        return System.currentTimeMillis() + gap >= cached.getExpiresAtMillis();
+    }
+
+    /**
+     * Records the page key in a per-item tag set ({@code search-tag:item:<id>})
+     * so that {@link #evictSearchPagesContaining(Long)} can drop exactly the
+     * pages an item appears on, and listing pages (no query) also in
+     * {@code search-tag:listing}. All tags of a page are written by one script.
+     */
+    private Mono<Void> tagSearchPage(String cacheKey, List<Item> items, boolean listing) {
+        List<String> tagKeys = new ArrayList<>(items.size() + 1);
+        for (Item item : items) {
+            tagKeys.add(SEARCH_TAG_PREFIX + item.getId());
+        }
+        if (listing) {
+            tagKeys.add(SEARCH_LISTING_TAG);
+        }
+        if (tagKeys.isEmpty()) {
+            return Mono.empty();
+        }
+        return stringRedisTemplate.execute(TAG_SEARCH_PAGE, tagKeys,
+                List.of(cacheKey, String.valueOf(SEARCH_TAG_TTL.toSeconds())))
+            .then();
+    }
+
+    /**
+     * Evicts the cached search pages an item change can affect: every page
+     * that contains the item, and every listing page, since a new item or a
+     * new price or title moves items between the pages of a sorted listing.
+     * Query pages the item newly matches are not tracked; they expire after
+     * {@code QUERY_CACHE_TTL}.
+     */
+    public Mono<Void> evictSearchPagesContaining(Long itemId) {
+        return unlinkTaggedPages(SEARCH_TAG_PREFIX + itemId)
+            .then(unlinkTaggedPages(SEARCH_LISTING_TAG))
+            .then();
+    }
+
+    /**
+     * Unlinks the pages recorded in the tag set together with the tag itself.
+     */
+    private Mono<Long> unlinkTaggedPages(String tagKey) {
+        return stringRedisTemplate.opsForSet().members(tagKey)
+            .collectList()
+            .flatMap(pageKeys -> {
+                List<String> keys = new ArrayList<>(pageKeys);
+                keys.add(tagKey);
+                log.info("Evicting {} search pages tagged {}", pageKeys.size(), tagKey);
+                return stringRedisTemplate.unlink(keys.toArray(new String[0]));
+            });
+    }
+
+    /**
+     * Offset page of the catalog or of a text search. Listing and SQL search
+     * pages read {@code limit + 1} rows: a short page is the last one and its
+     * total follows from the offset, otherwise the total comes from
+     * {@link ItemCountCache}, so a page costs one query and no COUNT.
+     */
     public Mono<Page<Item>> performSearch(String query, int pageNumber, int pageSize, String sort) {
         Pageable pageable = PageRequest.of(pageNumber - 1, pageSize);
         int limit = pageable.getPageSize();
@@ -60,32 +192,128 @@ public class ItemService {
         Flux<Item> itemsFlux;
         Mono<Long> totalCountMono;
         
-        if (query != null && !query.isEmpty()) {
-            itemsFlux = itemRepository.findByTitleOrDescriptionContainingIgnoreCase(query, limit, offset);
-            totalCountMono = itemRepository.countByTitleOrDescriptionContainingIgnoreCase(query);
+        if (query != null && !query.isEmpty() && searchIndex.isReady()) {
+            long[] ids = searchIndex.search(query);
+            int from = Math.min(offset, ids.length);
+            return hydrate(ids, from, Math.min(from + limit, ids.length))
+                    .map(items -> new PageImpl<>(items, pageable, ids.length));
+        } else if (query != null && !query.isEmpty()) {
+            itemsFlux = itemRepository.findByTitleOrDescriptionContainingIgnoreCase(query, limit + 1, offset);
+            totalCountMono = countCache.searchMatches(query);
         } else if ("ALPHA".equals(sort)) {
-            itemsFlux = itemRepository.findByOrderByTitleAsc(limit, offset);
-            totalCountMono = itemRepository.countAll();
+            itemsFlux = itemRepository.findByOrderByTitleAsc(limit + 1, offset);
+            totalCountMono = countCache.catalogSize();
         } else if ("PRICE".equals(sort)) {
-            itemsFlux = itemRepository.findByOrderByPriceAsc(limit, offset);
-            totalCountMono = itemRepository.countAll();
+            itemsFlux = itemRepository.findByOrderByPriceAsc(limit + 1, offset);
+            totalCountMono = countCache.catalogSize();
         } else {
-            itemsFlux = itemRepository.findAllByOrderByIdAsc(limit, offset);
-            totalCountMono = itemRepository.countAll();
+            itemsFlux = itemRepository.findAllByOrderByIdAsc(limit + 1, offset);
+            totalCountMono = countCache.catalogSize();
         }
         
-        return Mono.zip(itemsFlux.collectList(), totalCountMono)
-                .map(tuple -> {
-                    var items = tuple.getT1();
-                    var total = tuple.getT2();
-                    return new PageImpl<>(items, pageable, total);
+        return itemsFlux.collectList()
+                .flatMap(rows -> {
+                    if (rows.size() <= limit) {
+                        return Mono.just(new PageImpl<>(rows, pageable, offset + rows.size()));
+                    }
+                    List<Item> items = rows.subList(0, limit);
+                    // A stale cached total must still leave room for the next page
+                    return totalCountMono.map(total -> new PageImpl<>(items, pageable, Math.max(total, offset + limit + 1L)));
+                });
+    }
+
+    /**
+     * Keyset variant of {@link #performSearch}: reads the page next to the
+     * cursor's boundary row with an index seek and {@code limit + 1} rows to
+     * detect a further page, so deep pages cost the same as the first one and
+     * no COUNT is issued.
+     */
+    public Mono<Slice<Item>> scrollItems(String query, int pageSize, PageCursor cursor) {
+        int limit = pageSize + 1;
+        Flux<Item> rows;
+
+        switch (cursor.getMode()) {
+            case PageCursor.MODE_SEARCH:
+                if (searchIndex.isReady()) {
+                    rows = seekIndex(query, cursor, limit);
+                    break;
+                }
+                rows = cursor.isForward()
+                    ? itemRepository.findByTitleOrDescriptionContainingIgnoreCaseAfter(query, cursor.getId(), limit)
+                    : itemRepository.findByTitleOrDescriptionContainingIgnoreCaseBefore(query, cursor.getId(), limit);
+                break;
+            case PageCursor.MODE_TITLE:
+                rows = cursor.isForward()
+                    ? itemRepository.findByTitleAfter(cursor.getKey(), cursor.getId(), limit)
+                    : itemRepository.findByTitleBefore(cursor.getKey(), cursor.getId(), limit);
+                break;
+            case PageCursor.MODE_PRICE:
+                double price = Double.parseDouble(cursor.getKey());
+                rows = cursor.isForward()
+                    ? itemRepository.findByPriceAfter(price, cursor.getId(), limit)
+                    : itemRepository.findByPriceBefore(price, cursor.getId(), limit);
+                break;
+            default:
+                rows = cursor.isForward()
+                    ? itemRepository.findByIdAfter(cursor.getId(), limit)
+                    : itemRepository.findByIdBefore(cursor.getId(), limit);
+        }
+
+        Pageable pageable = PageRequest.of(Math.max(cursor.getPageNumber(), 1) - 1, pageSize);
+        return rows.collectList()
+            .map(found -> {
+                boolean more = found.size() > pageSize;
+                List<Item> items = new ArrayList<>(more ? found.subList(0, pageSize) : found);
+                if (!cursor.isForward()) {
+                    Collections.reverse(items);
+                }
+                // Going back we came from the next page; going forward the extra row tells
+                boolean hasNext = !cursor.isForward() || more;
+                Slice<Item> slice = new SliceImpl<>(items, pageable, hasNext);
+                return slice;
+            });
+    }
+
+    /**
+     * Index counterpart of the {@code ...After/Before} search queries: ids
+     * next to the cursor row, ascending going forward and descending going back.
+     */
+    private Flux<Item> seekIndex(String query, PageCursor cursor, int limit) {
+        long[] ids = searchIndex.search(query);
+        int position = Arrays.binarySearch(ids, cursor.getId());
+        int after = position >= 0 ? position + 1 : -position - 1;
+        int before = position >= 0 ? position : -position - 1;
+        if (cursor.isForward()) {
+            return hydrate(ids, after, Math.min(after + limit, ids.length)).flatMapIterable(items -> items);
+        }
+        return hydrate(ids, Math.max(before - limit, 0), before)
+                .flatMapIterable(items -> {
+                    List<Item> descending = new ArrayList<>(items);
+                    Collections.reverse(descending);
+                    return descending;
                 });
     }
 
+    /**
+     * Loads {@code ids[from, to)} through the item caches, keeping their order.
+     */
+    private Mono<List<Item>> hydrate(long[] ids, int from, int to) {
+        Set<Long> pageIds = new LinkedHashSet<>();
+        for (int i = from; i < to; i++) {
+            pageIds.add(ids[i]);
+        }
+        return getItemByIds(pageIds).collectList();
+    }
+
     public Mono<Item> getItemById(Long id) {
+        Item local = nearCache.get(id);
+        if (local != null) {
+            return Mono.just(local);
+        }
         String cacheKey = ITEM_CACHE_PREFIX + id;
         
-        return redisTemplate.opsForValue().get(cacheKey)
+        // Concurrent misses for the same item share one Redis lookup and one query
+        return itemLoads.execute(cacheKey, () -> redisTemplate.opsForValue().get(cacheKey)
                 .map(cachedItem -> {
                     log.info("Cache hit for item: {}", id);
                     return (Item) cachedItem;
@@ -99,65 +327,107 @@ public class ItemService {
                                     .thenReturn(item);
                         })
                         .switchIfEmpty(Mono.error(new NotFoundException("Item with id " + id + " not found")))
-                );
+                )
+                .doOnNext(nearCache::put));
     }
 
+    /**
+     * Batch lookup of items through both cache tiers: ids are served from the
+     * local near cache first, the rest are fetched with a single MGET, and the
+     * remaining misses are loaded from the database in one query and written
+     * back with a single MSET followed by pipelined EXPIREs. Items are emitted
+     * in the iteration order of {@code ids}; unknown ids are skipped.
+     */
     public Flux<Item> getItemByIds(Set<Long> ids) {
-        return Flux.fromIterable(ids)
-            .flatMap(id -> {
-                String cacheKey = ITEM_CACHE_PREFIX + id;
-                return redisTemplate.opsForValue().get(cacheKey)
-                    .map(cachedItem -> (Item) cachedItem);
-            })
-            .collectList()
-            .flatMapMany(cachedItems -> {
-                Set<Long> missingIds = new HashSet<>();
-                List<Item> result = new ArrayList<>();
-                
-                for (int i = 0; i < ids.size(); i++) {
-                    if (!cachedItems.isEmpty() && cachedItems.get(i) != null) {
-                        result.add(cachedItems.get(i));
-                    } else {
-                        missingIds.add(ids.toArray(new Long[0])[i]);
+        if (ids == null || ids.isEmpty()) {
+            return Flux.empty();
+        }
+        ItemBatchLookup lookup = new ItemBatchLookup(ids);
+        nearCache.getAll(ids).values().forEach(lookup::fill);
+        int localHits = lookup.filled();
+        if (localHits == lookup.size()) {
+            return Flux.fromIterable(lookup.result());
+        }
+
+        return redisTemplate.opsForValue().multiGet(lookup.cacheKeys(ITEM_CACHE_PREFIX))
+            .defaultIfEmpty(List.of())
+            .flatMapMany(cachedValues -> {
+                for (Object cached : cachedValues) {
+                    if (cached instanceof Item item && lookup.fill(item)) {
+                        nearCache.put(item);
                     }
                 }
-                
-                if (missingIds.isEmpty()) {
-                    return Flux.fromIterable(result);
-                } else {
-                    return itemRepository.findAllItemsByIds(missingIds)
-                        .flatMap(item -> {
-                            String cacheKey = ITEM_CACHE_PREFIX + item.getId();
-                            return redisTemplate.opsForValue()
-                                .set(cacheKey, item, CACHE_TTL)
-                                .thenReturn(item);
-                        })
-                        .collectList()
-                        .flatMapMany(missingItems -> {
-                            result.addAll(missingItems);
-                            return Flux.fromIterable(result);
-                        });
+                int hits = lookup.filled();
+                log.info("Batch cache lookup for {} items: {} local hits, {} redis hits, {} misses",
+                    lookup.size(), localHits, hits - localHits, lookup.size() - hits);
+
+                if (hits == lookup.size()) {
+                    return Flux.fromIterable(lookup.result());
                 }
+                return itemRepository.findAllItemsByIds(lookup.missingIds())
+                    .collectList()
+                    .flatMap(loadedItems -> cacheItems(loadedItems).thenReturn(loadedItems))
+                    .flatMapMany(loadedItems -> {
+                        for (Item item : loadedItems) {
+                            if (lookup.fill(item)) {
+                                nearCache.put(item);
+                            }
+                        }
+                        return Flux.fromIterable(lookup.result());
+                    });
             });
     }
-    
+
+    private Mono<Void> cacheItems(List<Item> items) {
+        if (items.isEmpty()) {
+            return Mono.empty();
+        }
+        Map<String, Item> entries = new HashMap<>();
+        for (Item item : items) {
+            entries.put(ITEM_CACHE_PREFIX + item.getId(), item);
+        }
+        // MSET has no TTL argument, so expiries are sent right behind it; Lettuce
+        // writes them on the shared connection without waiting for each reply.
+        return redisTemplate.opsForValue().multiSet(entries)
+            .thenMany(Flux.fromIterable(entries.keySet())
+                .flatMap(key -> redisTemplate.expire(key, CACHE_TTL)))
+            .then();
+    }
+
     public Mono<Void> clearItemCache(Long itemId) {
         String cacheKey = ITEM_CACHE_PREFIX + itemId;
         log.info("Clearing cache for item: {}", itemId);
-        return redisTemplate.delete(cacheKey).then();
+        // Redis first, so other nodes cannot refill their near cache from a stale entry
+        return redisTemplate.delete(cacheKey)
+                .then(evictSearchPagesContaining(itemId))
+                .then(Mono.defer(() -> nearCache.evict(itemId)))
+                .then(reindexItem(itemId));
     }
     
     public Mono<Void> clearAllItemCache() {
         log.info("Clearing all item cache");
-        return redisTemplate.keys(ITEM_CACHE_PREFIX + "*")
-                .flatMap(redisTemplate::delete)
+        return unlinkByPattern(ITEM_CACHE_PREFIX + "*")
+                .then(Mono.defer(nearCache::evictAll))
+                .then(Mono.fromRunnable(countCache::invalidateAll))
+                .then(searchIndex.rebuild());
+    }
+
+    /**
+     * Brings the item's search index entry in line with the database; a
+     * deleted item is dropped from the index.
+     */
+    private Mono<Void> reindexItem(Long itemId) {
+        return itemRepository.findById(itemId)
+                .doOnNext(searchIndex::index)
+                .switchIfEmpty(Mono.fromRunnable(() -> searchIndex.remove(itemId)))
                 .then();
     }
     
     public Mono<Void> clearSearchCache() {
         log.info("Clearing all search cache");
-        return redisTemplate.keys("search:*")
-                .flatMap(redisTemplate::delete)
+        return unlinkByPattern(SEARCH_CACHE_PREFIX + "*")
+                .then(unlinkByPattern(SEARCH_TAG_PREFIX + "*"))
+                .then(redisTemplate.unlink(SEARCH_LISTING_TAG))
                 .then();
     }
     
@@ -167,4 +437,22 @@ public class ItemService {
                 .then();
     }
 
+    /**
+     * Deletes matching keys with incremental SCAN and batched UNLINK instead of
+     * KEYS, so Redis never blocks on a full keyspace walk and frees the values
+     * in the background.
+     */
+    private Mono<Void> unlinkByPattern(String pattern) {
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(pattern)
+                .count(SCAN_BATCH_SIZE)
+                .build();
+        return redisTemplate.scan(options)
+                .buffer(SCAN_BATCH_SIZE)
+                .concatMap(keys -> redisTemplate.unlink(keys.toArray(new String[0])))
+                .reduce(0L, Long::sum)
+                .doOnNext(count -> log.info("Unlinked {} keys matching {}", count, pattern))
+                .then();
+    }
+
 }
\ No newline at end of file
@@ -1,53 +1,126 @@
 package io.github.danjos.intershop.service;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
+/**
+ * Service-to-service calls to the payment service with a client credentials
+ * token from Keycloak.
+ * <p>
+ * The token is cached until it expires. From {@code refresh-before-expiry}
+ * ahead of expiry it is still handed out while one background request fetches
+ * the next token, so callers only wait for the IdP on the very first call or
+ * after an outage. Concurrent callers that need a new token share one request.
+ * A call rejected with 401 drops the token and is retried once with a new one.
+ */
 @Service
+@Slf4j
 public class OAuth2ClientService {
-    
+
+    private static final String TOKEN_KEY = "client_credentials";
+
     private final WebClient webClient;
+    private final WebClient resourceClient;
     private final String keycloakTokenUrl;
     private final String clientId;
     private final String clientSecret;
     private final String scope;
-    
+    private final long refreshBeforeExpiryMillis;
+
+    private final AtomicReference<CachedToken> currentToken = new AtomicReference<>();
+    private final SingleFlight<String, CachedToken> tokenRequests = new SingleFlight<>();
+
     public OAuth2ClientService(
+            WebClient.Builder webClientBuilder,
             @Value("${spring.security.oauth2.client.provider.keycloak.issuer-uri}") String issuerUri,
             @Value("${spring.security.oauth2.client.registration.keycloak.client-id}") String clientId,
             @Value("${spring.security.oauth2.client.registration.keycloak.client-secret}") String clientSecret,
-            @Value("${spring.security.oauth2.client.registration.keycloak.scope}") String scope) {
-        
-        this.webClient = WebClient.builder()
+            @Value("${spring.security.oauth2.client.registration.keycloak.scope}") String scope,
+            @Value("${payment.service.url:http://localhost:8081}") String paymentServiceUrl,
+            @Value("${oauth2.client.token.refresh-before-expiry:30s}") Duration refreshBeforeExpiry) {
+
+        // Both clients share the pooled connector of the injected builder
+        this.webClient = webClientBuilder.clone()
                 .baseUrl(issuerUri)
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED_VALUE)
                 .build();
-        
+        this.resourceClient = webClientBuilder.clone()
+                .baseUrl(paymentServiceUrl)
+                .build();
+
         this.keycloakTokenUrl = issuerUri + "/protocol/openid-connect/token";
         this.clientId = clientId;
         this.clientSecret = clientSecret;
         this.scope = scope;
+        this.refreshBeforeExpiryMillis = refreshBeforeExpiry.toMillis();
     }
-    
+
     /**
-     * Get access token using Client Credentials flow
+     * Get access token using Client Credentials flow, from the cache while it is valid
      */
     public Mono<String> getAccessToken() {
-        return webClient.post()
-                .uri("/protocol/openid-connect/token")
-                .bodyValue(createTokenRequest())
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> (String) response.get("access_token"))
-                .onErrorMap(throwable -> new RuntimeException("Failed to get access token", throwable));
+        return Mono.defer(() -> {
+            CachedToken token = currentToken.get();
+            long now = System.currentTimeMillis();
+            if (token == null || now >= token.expiresAtMillis) {
+                return refreshToken().map(CachedToken::getValue);
+            }
+            if (now >= token.refreshAtMillis) {
+                // Still valid: hand it out and fetch the next one in the background
+                refreshToken().subscribe(
+                        fresh -> log.debug("Access token refreshed ahead of expiry"),
+                        e -> log.warn("Background access token refresh failed: {}", e.getMessage()));
+            }
+            return Mono.just(token.getValue());
+        });
+    }
+
+    private Mono<CachedToken> refreshToken() {
+        return tokenRequests.execute(TOKEN_KEY, () -> requestToken().doOnNext(currentToken::set));
+    }
+
+    private Mono<CachedToken> requestToken() {
+        return Mono.defer(() -> {
+            long requestedAt = System.currentTimeMillis();
+            return webClient.post()
+                    .uri("/protocol/openid-connect/token")
+                    .bodyValue(createTokenRequest())
+                    .retrieve()
+                    .bodyToMono(Map.class)
+                    .map(response -> toCachedToken(response, requestedAt));
+        }).onErrorMap(throwable -> new RuntimeException("Failed to get access token", throwable));
+    }
+
+    private CachedToken toCachedToken(Map<?, ?> response, long requestedAt) {
+        String value = (String) response.get("access_token");
+        if (value == null) {
+            throw new IllegalStateException("Token response from " + keycloakTokenUrl + " has no access_token");
+        }
+        // Lifetime counted from the request, so the token never outlives what the IdP granted
+        long lifetimeMillis = response.get("expires_in") instanceof Number expiresIn
+                ? expiresIn.longValue() * 1000 : 0;
+        long refreshAhead = Math.min(refreshBeforeExpiryMillis, lifetimeMillis / 2);
+        return new CachedToken(value, requestedAt + lifetimeMillis - refreshAhead, requestedAt + lifetimeMillis);
+    }
+
+    /**
+     * Drop the token unless it was already replaced by a newer one
+     */
+    private void invalidate(String rejectedToken) {
+        currentToken.updateAndGet(token -> token != null && token.getValue().equals(rejectedToken) ? null : token);
     }
-    
+
     /**
      * Create token request body for Client Credentials flow
      */
@@ -57,46 +130,67 @@ public class OAuth2ClientService {
                 clientId, clientSecret, scope
         );
     }
-    
+
     /**
      * Get WebClient with OAuth2 authorization header
      */
     public Mono<WebClient> getAuthorizedWebClient() {
         return getAccessToken()
-                .map(token -> WebClient.builder()
-                        .baseUrl("http://localhost:8081")
+                .map(token -> resourceClient.mutate()
                         .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token)
                         .build());
     }
-    
+
     /**
      * Execute request with OAuth2 token - reactive approach
      */
-    public <T> Mono<T> executeWithToken(String uri, Class<T> responseType) {
-        return getAccessToken()
-                .flatMap(token -> WebClient.builder()
-                        .baseUrl("http://localhost:8081")
-                        .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token)
-                        .build()
-                        .get()
-                        .uri(uri)
-                        .retrieve()
-                        .bodyToMono(responseType));
+    public <T> Mono<T> executeWithToken(String uri, Class<T> responseType, Object... uriVariables) {
+        return withToken(token -> resourceClient.get()
+                .uri(uri, uriVariables)
+                .headers(headers -> headers.setBearerAuth(token))
+                .retrieve()
+                .bodyToMono(responseType));
     }
-    
+
     /**
      * Execute POST request with OAuth2 token - reactive approach
      */
     public <T, R> Mono<R> executePostWithToken(String uri, T requestBody, Class<R> responseType) {
+        return withToken(token -> resourceClient.post()
+                .uri(uri)
+                .headers(headers -> headers.setBearerAuth(token))
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(responseType));
+    }
+
+    /**
+     * Run the call with the cached token; on 401 (token revoked or expired
+     * early) run it once more with a new token
+     */
+    private <R> Mono<R> withToken(Function<String, Mono<R>> call) {
         return getAccessToken()
-                .flatMap(token -> WebClient.builder()
-                        .baseUrl("http://localhost:8081")
-                        .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token)
-                        .build()
-                        .post()
-                        .uri(uri)
-                        .bodyValue(requestBody)
-                        .retrieve()
-                        .bodyToMono(responseType));
+                .flatMap(token -> call.apply(token)
+                        .onErrorResume(WebClientResponseException.Unauthorized.class, e -> {
+                            log.debug("Access token rejected with 401, retrying with a new token");
+                            invalidate(token);
+                            return getAccessToken().flatMap(call);
+                        }));
+    }
+
+    private static final class CachedToken {
+        private final String value;
+        private final long refreshAtMillis;
+        private final long expiresAtMillis;
+
+        private CachedToken(String value, long refreshAtMillis, long expiresAtMillis) {
+            this.value = value;
+            this.refreshAtMillis = refreshAtMillis;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        private String getValue() {
+            return value;
+        }
     }
 }
@@ -6,6 +6,7 @@ import io.github.danjos.intershop.repository.OrderRepository;
 import io.github.danjos.intershop.repository.OrderItemRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -16,15 +17,39 @@ import reactor.core.publisher.Mono;
 @Service
 @RequiredArgsConstructor
 public class OrderService {
+    // Order ids per IN (...) when loading order lines, to bound the statement size
+    static final int ORDER_ID_BATCH_SIZE = 500;
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final ItemService itemService;
 
+    /**
+     * Saves the order and all of its lines in one transaction; the lines are
+     * written with a single batched INSERT whatever the basket size.
+     */
+    @Transactional
     public Mono<Order> createOrderFromCart(Map<Long, Integer> cartItems, User user) {
+        return createOrder(cartItems, user, null, "PROCESSING");
+    }
+
+    /**
+     * Same as {@link #createOrderFromCart(Map, User)} for checkout: the order
+     * is {@link Order#PENDING} until it is paid, and claims the checkout token,
+     * so a second order with the same token for the user fails with a
+     * {@link org.springframework.dao.DataIntegrityViolationException}.
+     */
+    @Transactional
+    public Mono<Order> createOrderFromCart(Map<Long, Integer> cartItems, User user, String idempotencyKey) {
+        return createOrder(cartItems, user, idempotencyKey, Order.PENDING);
+    }
+
+    private Mono<Order> createOrder(Map<Long, Integer> cartItems, User user, String idempotencyKey, String status) {
         Order order = new Order();
         order.setUserId(user.getId());
         order.setOrderDate(LocalDateTime.now());
-        order.setStatus("PROCESSING");
+        order.setStatus(status);
+        order.setIdempotencyKey(idempotencyKey);
         Set<Long> itemIds = cartItems.keySet();
 
         return orderRepository.save(order)
@@ -40,8 +65,10 @@ public class OrderService {
                                 orderItem.setItem(item);
                                 return orderItem;
                             })
-                            .flatMap(orderItemRepository::save)
                             .collectList()
+                            .flatMap(orderItems -> orderItems.isEmpty()
+                                    ? Mono.just(orderItems)
+                                    : orderItemRepository.insertAll(orderItems).collectList())
                             .map(savedOrderItems -> {
                                 savedOrder.setItems(savedOrderItems);
                                 return savedOrder;
@@ -49,9 +76,28 @@ public class OrderService {
                 });
     }
 
+    public Mono<Order> findByIdempotencyKey(Long userId, String idempotencyKey) {
+        return orderRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey);
+    }
+
+    public Mono<Void> markPaid(Long orderId) {
+        return orderRepository.updateStatus(orderId, Order.PAID).then();
+    }
+
+    /**
+     * Deletes the order with its lines unless it was paid in the meantime.
+     */
+    public Mono<Void> deletePendingOrder(Long orderId) {
+        return orderRepository.deleteByIdAndStatus(orderId, Order.PENDING).then();
+    }
+
+    /**
+     * The user's orders; orders still waiting for their payment are left out.
+     */
     public Flux<Order> getUserOrders(User user) {
-        return orderRepository.findByUserId(user.getId())
-                .flatMap(this::populateOrderWithItems);
+        return orderRepository.findByUserIdAndStatusNot(user.getId(), Order.PENDING)
+                .collectList()
+                .flatMapMany(this::populateOrdersWithItems);
     }
 
     public Mono<Order> getOrderById(Long id) {
@@ -60,6 +106,42 @@ public class OrderService {
                 .flatMap(this::populateOrderWithItems);
     }
 
+    /**
+     * Loads the lines of all orders with IN queries of up to
+     * {@link #ORDER_ID_BATCH_SIZE} ids and their items with one batched lookup,
+     * so the order history costs the same few round trips for any number of orders.
+     */
+    private Flux<Order> populateOrdersWithItems(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return Flux.empty();
+        }
+        Map<Long, Order> ordersById = new LinkedHashMap<>();
+        orders.forEach(order -> ordersById.put(order.getId(), order));
+
+        return Flux.fromIterable(ordersById.keySet())
+                .buffer(ORDER_ID_BATCH_SIZE)
+                .concatMap(orderItemRepository::findByOrderIdIn)
+                .collectList()
+                .flatMapMany(orderItems -> {
+                    Set<Long> itemIds = orderItems.stream()
+                            .map(OrderItem::getItemId)
+                            .collect(Collectors.toSet());
+
+                    return itemService.getItemByIds(itemIds)
+                            .collectMap(Item::getId)
+                            .flatMapMany(itemMap -> {
+                                orders.forEach(order -> order.setItems(new ArrayList<>()));
+                                for (OrderItem orderItem : orderItems) {
+                                    Order order = ordersById.get(orderItem.getOrderId());
+                                    orderItem.setItem(itemMap.get(orderItem.getItemId()));
+                                    orderItem.setOrder(order);
+                                    order.getItems().add(orderItem);
+                                }
+                                return Flux.fromIterable(orders);
+                            });
+                });
+    }
+
     private Mono<Order> populateOrderWithItems(Order order) {
         return orderItemRepository.findByOrderId(order.getId())
                 .collectList()
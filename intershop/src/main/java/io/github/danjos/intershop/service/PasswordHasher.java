@@ -0,0 +1,144 @@
+package io.github.danjos.intershop.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing (BCrypt, ~100 ms of CPU per call at strength 10) on a
+ * dedicated bounded scheduler instead of the event loop.
+ * <p>
+ * At most {@code threads} hashes run at once and each thread queues at most
+ * {@code queue-capacity} more; beyond that calls fail fast with a
+ * {@link RejectedExecutionException}, so a login storm is turned away rather
+ * than stalling every other request. Counters are available from
+ * {@link #stats()} and rejections are logged.
+ */
+@Component
+@Slf4j
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final Scheduler scheduler;
+    private final PasswordEncoder instrumentedEncoder;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    public PasswordHasher(
+            PasswordEncoder passwordEncoder,
+            @Value("${security.password.hashing.threads:0}") int threads,
+            @Value("${security.password.hashing.queue-capacity:100}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        // 0 means one thread per core: hashing is pure CPU work
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.scheduler = Schedulers.newBoundedElastic(poolSize, queueCapacity, "password-hashing");
+        this.instrumentedEncoder = new InstrumentedEncoder();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.dispose();
+    }
+
+    public Mono<String> encode(CharSequence rawPassword) {
+        return submit(() -> instrumentedEncoder.encode(rawPassword));
+    }
+
+    public Mono<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> instrumentedEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * True when the hash was made with weaker settings than the current ones.
+     */
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * The hashing scheduler, for components that hash themselves (the login
+     * authentication manager), together with {@link #encoder()}.
+     */
+    public Scheduler scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * The password encoder with timing and counters; only call it on
+     * {@link #scheduler()}.
+     */
+    public PasswordEncoder encoder() {
+        return instrumentedEncoder;
+    }
+
+    public Stats stats() {
+        long done = completed.get();
+        return new Stats(active.get(), done, rejected.get(), done > 0 ? totalNanos.get() / done / 1_000_000 : 0);
+    }
+
+    private <T> Mono<T> submit(Callable<T> task) {
+        return Mono.fromCallable(task)
+                .subscribeOn(scheduler)
+                .doOnError(RejectedExecutionException.class, e -> recordRejection());
+    }
+
+    public void recordRejection() {
+        long total = rejected.incrementAndGet();
+        log.warn("Password hashing queue is full, rejected {} requests so far (active: {})", total, active.get());
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Stats {
+        private final int active;
+        private final long completed;
+        private final long rejected;
+        private final long averageMillis;
+    }
+
+    private final class InstrumentedEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return timed(() -> passwordEncoder.encode(rawPassword));
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return timed(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            return passwordEncoder.upgradeEncoding(encodedPassword);
+        }
+
+        private <T> T timed(Supplier<T> hashing) {
+            active.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                return hashing.get();
+            } finally {
+                totalNanos.addAndGet(System.nanoTime() - start);
+                completed.incrementAndGet();
+                active.decrementAndGet();
+            }
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package io.github.danjos.intershop.service;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.math.BigDecimal;
+import java.util.Map;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,7 +16,10 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class PaymentClientService {
     
-    private final UserService userService;
+    private static final String BALANCE_URI = "/api/payment/balance?username={username}";
+    private static final String PROCESS_URI = "/api/payment/process";
+
+    private final OAuth2ClientService oAuth2ClientService;
     
     public Mono<Double> getBalance() {
         // For now, return a default balance since we don't have user context here
@@ -25,17 +33,16 @@ public class PaymentClientService {
         }).onErrorReturn(0.0);
     }
     
+    /**
+     * The user's balance as kept by the payment service, which owns it.
+     */
     public Mono<Double> getBalanceForUser(String username) {
         log.debug("Getting balance for user: {}", username);
-        return userService.findByUsername(username)
-                .map(user -> {
-                    Double balance = user.getBalance().doubleValue();
+        return oAuth2ClientService.executeWithToken(BALANCE_URI, Map.class, username)
+                .map(response -> {
+                    Double balance = ((Number) response.get("balance")).doubleValue();
                     log.debug("User {} has balance: {}", username, balance);
                     return balance;
-                })
-                .onErrorResume(e -> {
-                    log.error("Error getting balance for user {}: {}", username, e.getMessage(), e);
-                    return Mono.just(1000.0); // Default balance
                 });
     }
     
@@ -52,36 +59,26 @@ public class PaymentClientService {
         }).onErrorReturn(false);
     }
     
-    public Mono<Boolean> processPaymentForUser(String username, Double amount, String orderId) {
-        log.info("Processing payment for user {}: amount={}, orderId={}", username, amount, orderId);
-        return userService.findByUsername(username)
-            .flatMap(user -> {
-                Double currentBalance = user.getBalance().doubleValue();
-                log.debug("User {} current balance: {}", username, currentBalance);
-                
-                if (currentBalance >= amount) {
-                    // Deduct the amount from user's balance
-                    Double newBalance = currentBalance - amount;
-                    user.setBalance(java.math.BigDecimal.valueOf(newBalance));
-                    return userService.updateUser(user)
-                        .map(updatedUser -> {
-                            log.info("Payment processed successfully for user {}: amount={}, newBalance={}", 
-                                username, amount, newBalance);
-                            return true;
-                        })
-                        .onErrorResume(e -> {
-                            log.error("Error updating user balance after payment for user {}: {}", username, e.getMessage(), e);
-                            return Mono.just(false);
-                        });
-                } else {
-                    log.warn("Insufficient balance for user {}: required={}, available={}", 
-                        username, amount, currentBalance);
-                    return Mono.just(false);
-                }
-            })
-            .onErrorResume(e -> {
-                log.error("Error processing payment for user {}: {}", username, e.getMessage(), e);
-                return Mono.just(false);
-            });
+    /**
+     * Debits the user's balance in the payment service, as one atomic ledger
+     * debit there; a repeated call with the same reference is not charged
+     * again. Emits the new balance, or completes empty when the payment
+     * service declines for insufficient funds. Any other error, including an
+     * invalid request, is passed on.
+     */
+    public Mono<BigDecimal> debitBalance(String username, BigDecimal amount, String orderId) {
+        Map<String, Object> request = Map.of("username", username, "amount", amount, "orderId", orderId);
+        return oAuth2ClientService.executePostWithToken(PROCESS_URI, request, Map.class)
+            .map(response -> new BigDecimal(response.get("newBalance").toString()))
+            .doOnNext(newBalance -> log.info("Payment processed for user {}: amount={}, orderId={}, newBalance={}", 
+                username, amount, orderId, newBalance))
+            // The payment service answers 402 when the balance does not cover the amount
+            .onErrorResume(PaymentClientService::isInsufficientFunds, e -> Mono.fromRunnable(() ->
+                log.warn("Insufficient balance for user {}: required={}, orderId={}", username, amount, orderId)));
+    }
+
+    private static boolean isInsufficientFunds(Throwable e) {
+        return e instanceof WebClientResponseException response
+            && response.getStatusCode().value() == HttpStatus.PAYMENT_REQUIRED.value();
     }
 }
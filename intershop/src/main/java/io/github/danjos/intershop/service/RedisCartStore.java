@@ -0,0 +1,85 @@
+package io.github.danjos.intershop.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Cart store on one Redis hash per user ({@code cart:<userId>}, field = item
+ * id, value = quantity). Mutations are single {@code HINCRBY}-based scripts
+ * that also push the cart's expiry forward, so abandoned carts age out.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.store", havingValue = "redis")
+public class RedisCartStore implements CartStore {
+
+    static final String CART_KEY_PREFIX = "cart:";
+
+    private static final RedisScript<Long> INCREMENT = RedisScript.of(
+            "local quantity = redis.call('HINCRBY', KEYS[1], ARGV[1], 1) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "return quantity", Long.class);
+
+    private static final RedisScript<Long> DECREMENT = RedisScript.of(
+            "local quantity = redis.call('HINCRBY', KEYS[1], ARGV[1], -1) " +
+            "if quantity <= 0 then redis.call('HDEL', KEYS[1], ARGV[1]) end " +
+            "if redis.call('EXISTS', KEYS[1]) == 1 then redis.call('PEXPIRE', KEYS[1], ARGV[2]) end " +
+            "return quantity", Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final Duration ttl;
+
+    public RedisCartStore(ReactiveStringRedisTemplate redisTemplate,
+                          @Value("${cart.redis.ttl:30d}") Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public Mono<Void> increment(Long userId, Long itemId) {
+        return run(INCREMENT, userId, itemId);
+    }
+
+    @Override
+    public Mono<Void> decrement(Long userId, Long itemId) {
+        return run(DECREMENT, userId, itemId);
+    }
+
+    @Override
+    public Mono<Void> remove(Long userId, Long itemId) {
+        return redisTemplate.opsForHash().remove(key(userId), String.valueOf(itemId))
+            .then();
+    }
+
+    @Override
+    public Mono<Map<Long, Integer>> quantities(Long userId) {
+        // Hash fields have no reliable order, so lines are shown by item id
+        return redisTemplate.<String, String>opsForHash().entries(key(userId))
+            .collect(TreeMap::new, (quantities, entry) ->
+                quantities.put(Long.valueOf(entry.getKey()), Integer.valueOf(entry.getValue())));
+    }
+
+    @Override
+    public Mono<Void> clear(Long userId) {
+        return redisTemplate.unlink(key(userId))
+            .then();
+    }
+
+    private Mono<Void> run(RedisScript<Long> script, Long userId, Long itemId) {
+        return redisTemplate.execute(script, List.of(key(userId)),
+                List.of(String.valueOf(itemId), String.valueOf(ttl.toMillis())))
+            .then();
+    }
+
+    private static String key(Long userId) {
+        return CART_KEY_PREFIX + userId;
+    }
+}
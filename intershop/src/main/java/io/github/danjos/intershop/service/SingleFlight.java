@@ -0,0 +1,39 @@
+package io.github.danjos.intershop.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Per-key deduplication of in-flight loads: concurrent callers for the same
+ * key share one subscription to the loader and all receive its result (or
+ * error). The key is released as soon as the load terminates, so the next
+ * caller after that starts a fresh load.
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    Mono<V> execute(K key, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> {
+            Mono<V> existing = inFlight.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            AtomicReference<Mono<V>> self = new AtomicReference<>();
+            Mono<V> shared = Mono.defer(loader)
+                    .doFinally(signal -> inFlight.remove(key, self.get()))
+                    .cache();
+            self.set(shared);
+            existing = inFlight.putIfAbsent(key, shared);
+            return existing != null ? existing : shared;
+        });
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+}
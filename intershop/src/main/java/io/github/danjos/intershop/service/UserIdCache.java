@@ -0,0 +1,37 @@
+package io.github.danjos.intershop.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded in-process username → user id map. Ids never change for a
+ * username, so the TTL only limits how long a deleted user stays resolvable.
+ */
+@Component
+public class UserIdCache {
+
+    private final Cache<String, Long> ids;
+
+    public UserIdCache(
+            @Value("${cache.user-id.max-size:10000}") long maxSize,
+            @Value("${cache.user-id.ttl:1h}") Duration ttl) {
+        this.ids = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public Long get(String username) {
+        return ids.getIfPresent(username);
+    }
+
+    public void put(String username, Long id) {
+        if (username != null && id != null) {
+            ids.put(username, id);
+        }
+    }
+}
@@ -1,18 +1,24 @@
 package io.github.danjos.intershop.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import io.github.danjos.intershop.repository.UserRepository;
 import io.github.danjos.intershop.model.User;
 
+import java.util.function.Supplier;
+
 @Service
 @RequiredArgsConstructor
 public class UserService {
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final UserIdCache userIdCache;
+    private final PasswordHasher passwordHasher;
+
+    // Session attribute holding the user id, suffixed with the username it belongs to
+    private static final String SESSION_USER_ID_PREFIX = "userId:";
 
     public Mono<User> getCurrentUser() {
         return userRepository.findByUsername("currentUser")
@@ -24,16 +30,19 @@ public class UserService {
     }
     
     public Mono<User> createUser(User user) {
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        return passwordHasher.encode(user.getPassword())
+            .flatMap(hash -> {
+                user.setPassword(hash);
+                return userRepository.save(user);
+            });
     }
     
     public Mono<User> createUser(String username, String password, String email) {
         User user = new User();
         user.setUsername(username);
-        user.setPassword(passwordEncoder.encode(password));
+        user.setPassword(password);
         user.setEmail(email);
-        return userRepository.save(user);
+        return createUser(user);
     }
     
     public Mono<User> findByUsername(String username) {
@@ -41,11 +50,20 @@ public class UserService {
     }
     
     public Mono<Long> getUserIdByUsername(String username) {
+        Long cached = userIdCache.get(username);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
         return userRepository.findByUsername(username)
-            .map(User::getId);
+            .map(User::getId)
+            .doOnNext(id -> userIdCache.put(username, id));
     }
     
     public Mono<Long> getOrCreateUserIdByUsername(String username) {
+        Long cached = userIdCache.get(username);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
         return userRepository.findByUsername(username)
             .map(User::getId)
             .switchIfEmpty(Mono.defer(() -> {
@@ -53,19 +71,45 @@ public class UserService {
                 User newUser = new User();
                 newUser.setUsername(username);
                 newUser.setEmail(username + "@example.com");
-                newUser.setPassword(passwordEncoder.encode("defaultPassword"));
-                newUser.setBalance(java.math.BigDecimal.valueOf(1000.0));
-                return userRepository.save(newUser)
+                newUser.setPassword("defaultPassword");
+                return createUser(newUser)
                     .map(User::getId);
-            }));
+            }))
+            .doOnNext(id -> userIdCache.put(username, id));
+    }
+
+    /**
+     * Session-first variant of {@link #getUserIdByUsername(String)}: the id is
+     * read from the web session (put there at login or on first lookup), so
+     * it is resolved without a query on any node that shares the session.
+     */
+    public Mono<Long> getUserIdByUsername(ServerWebExchange exchange, String username) {
+        return fromSession(exchange, username, () -> getUserIdByUsername(username));
+    }
+
+    public Mono<Long> getOrCreateUserIdByUsername(ServerWebExchange exchange, String username) {
+        return fromSession(exchange, username, () -> getOrCreateUserIdByUsername(username));
+    }
+
+    private Mono<Long> fromSession(ServerWebExchange exchange, String username, Supplier<Mono<Long>> lookup) {
+        String attribute = SESSION_USER_ID_PREFIX + username;
+        return exchange.getSession()
+            .flatMap(session -> {
+                Object stored = session.getAttribute(attribute);
+                if (stored instanceof Long id) {
+                    userIdCache.put(username, id);
+                    return Mono.just(id);
+                }
+                return lookup.get().doOnNext(id -> session.getAttributes().put(attribute, id));
+            });
     }
     
-    public boolean matchesPassword(String rawPassword, String encodedPassword) {
-        return passwordEncoder.matches(rawPassword, encodedPassword);
+    public Mono<Boolean> matchesPassword(String rawPassword, String encodedPassword) {
+        return passwordHasher.matches(rawPassword, encodedPassword);
     }
     
-    public PasswordEncoder getPasswordEncoder() {
-        return passwordEncoder;
+    public Mono<String> encodePassword(String rawPassword) {
+        return passwordHasher.encode(rawPassword);
     }
     
     public Mono<User> updateUser(User user) {
@@ -0,0 +1,108 @@
+package io.github.danjos.intershop.util;
+
+import io.github.danjos.intershop.model.Item;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque keyset cursor for the catalog listing. It remembers the seek mode,
+ * the direction, the page number it leads to and the sort key of the boundary
+ * row, so the next page is read with an index seek instead of OFFSET.
+ */
+@Data
+public class PageCursor {
+    public static final String MODE_ID = "ID";
+    public static final String MODE_TITLE = "ALPHA";
+    public static final String MODE_PRICE = "PRICE";
+    // Text search results are ordered by id
+    public static final String MODE_SEARCH = "SEARCH";
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "|";
+
+    private final String mode;
+    private final boolean forward;
+    private final int pageNumber;
+    private final long id;
+    private final String key;
+
+    public static String modeFor(String query, String sort) {
+        if (query != null && !query.isEmpty()) {
+            return MODE_SEARCH;
+        }
+        if (MODE_TITLE.equals(sort)) {
+            return MODE_TITLE;
+        }
+        if (MODE_PRICE.equals(sort)) {
+            return MODE_PRICE;
+        }
+        return MODE_ID;
+    }
+
+    /**
+     * Cursor to the page after {@code items}, or null when the page is empty.
+     */
+    public static String next(String mode, int pageNumber, List<Item> items) {
+        if (items.isEmpty()) {
+            return null;
+        }
+        Item last = items.get(items.size() - 1);
+        return new PageCursor(mode, true, pageNumber + 1, last.getId(), keyOf(mode, last)).encode();
+    }
+
+    /**
+     * Cursor to the page before {@code items}, or null when there is none.
+     */
+    public static String previous(String mode, int pageNumber, List<Item> items) {
+        if (items.isEmpty() || pageNumber <= 1) {
+            return null;
+        }
+        Item first = items.get(0);
+        return new PageCursor(mode, false, pageNumber - 1, first.getId(), keyOf(mode, first)).encode();
+    }
+
+    public String encode() {
+        String raw = String.join(SEPARATOR, VERSION, mode, forward ? "N" : "P",
+                String.valueOf(pageNumber), String.valueOf(id), key != null ? key : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a cursor from a request; returns null for missing, tampered or
+     * outdated cursors so the caller can fall back to the first page.
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 6);
+            if (parts.length != 6 || !VERSION.equals(parts[0])) {
+                return null;
+            }
+            String mode = parts[1];
+            String key = parts[5];
+            if (MODE_PRICE.equals(mode)) {
+                Double.parseDouble(key);
+            }
+            return new PageCursor(mode, "N".equals(parts[2]), Integer.parseInt(parts[3]),
+                    Long.parseLong(parts[4]), MODE_TITLE.equals(mode) || MODE_PRICE.equals(mode) ? key : null);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String keyOf(String mode, Item item) {
+        if (MODE_TITLE.equals(mode)) {
+            return item.getTitle();
+        }
+        if (MODE_PRICE.equals(mode)) {
+            return String.valueOf(item.getPrice());
+        }
+        return null;
+    }
+}
@@ -8,6 +8,9 @@ public class Paging {
     private int pageSize;
     private boolean hasNext;
     private boolean hasPrevious;
+    // Opaque keyset cursors for the neighbouring pages, null when not available
+    private String nextCursor;
+    private String prevCursor;
 
 
     public Paging(int pageNumber, int pageSize, boolean hasNext, boolean hasPrevious) {
@@ -17,6 +20,13 @@ public class Paging {
         this.hasPrevious = hasPrevious;
     }
 
+    public Paging(int pageNumber, int pageSize, boolean hasNext, boolean hasPrevious,
+                  String nextCursor, String prevCursor) {
+        this(pageNumber, pageSize, hasNext, hasPrevious);
+        this.nextCursor = hasNext ? nextCursor : null;
+        this.prevCursor = hasPrevious ? prevCursor : null;
+    }
+
 
     public int pageNumber() { return pageNumber; }
     public boolean hasNext() { return hasNext; }
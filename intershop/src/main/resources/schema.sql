@@ -3,7 +3,6 @@ CREATE TABLE IF NOT EXISTS users (
     username VARCHAR(50) NOT NULL UNIQUE,
     password VARCHAR(100) NOT NULL,
     email VARCHAR(100) NOT NULL UNIQUE,
-    balance DECIMAL(10, 2) NOT NULL DEFAULT 1000.00,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
@@ -22,6 +21,7 @@ CREATE TABLE IF NOT EXISTS orders (
     user_id BIGINT NOT NULL,
     status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
     order_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    idempotency_key VARCHAR(64),
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 );
 
@@ -46,7 +46,10 @@ CREATE TABLE IF NOT EXISTS cart_items (
     UNIQUE(user_id, item_id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_items_title_id ON items(title, id);
+CREATE INDEX IF NOT EXISTS idx_items_price_id ON items(price, id);
 CREATE INDEX IF NOT EXISTS idx_orders_user ON orders(user_id);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_orders_user_idempotency ON orders(user_id, idempotency_key);
 CREATE INDEX IF NOT EXISTS idx_order_items_order ON order_items(order_id);
 CREATE INDEX IF NOT EXISTS idx_order_items_item ON order_items(item_id);
 CREATE INDEX IF NOT EXISTS idx_cart_items_user ON cart_items(user_id);
\ No newline at end of file
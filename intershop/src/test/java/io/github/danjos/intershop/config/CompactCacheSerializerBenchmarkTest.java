@@ -0,0 +1,111 @@
+package io.github.danjos.intershop.config;
+
+import io.github.danjos.intershop.dto.SearchResultCache;
+import io.github.danjos.intershop.model.Item;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bytes per entry and encode/decode time of the compact codec against the
+ * JSON serializer it replaces, for a cached item and a cached search page.
+ * Excluded from the default build; run with {@code mvn -pl intershop test -Pbenchmark}.
+ * The timings are a warmed up best of several rounds, for comparing the two
+ * serializers on one machine, not absolute numbers.
+ */
+@Tag("benchmark")
+@DisplayName("CompactCacheSerializer Benchmark")
+class CompactCacheSerializerBenchmarkTest {
+
+   private static final int WARMUP_ROUNDS = 5;
+   private static final int MEASURED_ROUNDS = 10;
+   private static final int OPS_PER_ROUND = 20_000;
+
+   private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+   private final CompactCacheSerializer compact = new CompactCacheSerializer(json);
+
+   // Consumed results, so the JIT cannot drop the measured calls
+   private long sink;
+
+   @Test
+   @DisplayName("Should report bytes per entry and ns/op for compact and JSON")
+   void compareWithJson() {
+       List<Result> results = new ArrayList<>();
+       for (Object value : List.of(item(12345L), searchPage(20))) {
+           results.add(measure("json", json, value));
+           results.add(measure("compact", compact, value));
+       }
+
+       System.out.printf("%-20s %-8s %10s %12s %12s%n", "entry", "codec", "bytes", "encode ns", "decode ns");
+       for (Result result : results) {
+           System.out.printf("%-20s %-8s %10d %12.0f %12.0f%n",
+                   result.entry(), result.codec(), result.bytes(), result.encodeNanos(), result.decodeNanos());
+       }
+       assertThat(sink).isNotZero();
+   }
+
+   private Result measure(String codec, RedisSerializer<Object> serializer, Object value) {
+       byte[] bytes = serializer.serialize(value);
+       assertThat(serializer.deserialize(bytes)).isEqualTo(value);
+
+       for (int i = 0; i < WARMUP_ROUNDS; i++) {
+           encodeRound(serializer, value);
+           decodeRound(serializer, bytes);
+       }
+       long[] encode = new long[MEASURED_ROUNDS];
+       long[] decode = new long[MEASURED_ROUNDS];
+       for (int i = 0; i < MEASURED_ROUNDS; i++) {
+           encode[i] = encodeRound(serializer, value);
+           decode[i] = decodeRound(serializer, bytes);
+       }
+       return new Result(value.getClass().getSimpleName(), codec, bytes.length,
+               (double) Arrays.stream(encode).min().getAsLong() / OPS_PER_ROUND,
+               (double) Arrays.stream(decode).min().getAsLong() / OPS_PER_ROUND);
+   }
+
+   private long encodeRound(RedisSerializer<Object> serializer, Object value) {
+       long start = System.nanoTime();
+       for (int i = 0; i < OPS_PER_ROUND; i++) {
+           sink += serializer.serialize(value).length;
+       }
+       return System.nanoTime() - start;
+   }
+
+   private long decodeRound(RedisSerializer<Object> serializer, byte[] bytes) {
+       long start = System.nanoTime();
+       for (int i = 0; i < OPS_PER_ROUND; i++) {
+           sink += serializer.deserialize(bytes).hashCode();
+       }
+       return System.nanoTime() - start;
+   }
+
+   private record Result(String entry, String codec, int bytes, double encodeNanos, double decodeNanos) {
+   }
+
+   private static Item item(Long id) {
+       Item item = new Item();
+       item.setId(id);
+       item.setTitle("Laptop " + id);
+       item.setDescription("High performance laptop with a long enough description");
+       item.setPrice(999.99);
+       item.setImgPath("/images/laptop.jpg");
+       item.setStock(10);
+       return item;
+   }
+
+   private static SearchResultCache searchPage(int size) {
+       List<Item> items = new ArrayList<>();
+       for (long i = 1; i <= size; i++) {
+           items.add(item(i));
+       }
+       return new SearchResultCache(items, 1000, 0, size, 12, 1_700_000_000_000L);
+   }
+}
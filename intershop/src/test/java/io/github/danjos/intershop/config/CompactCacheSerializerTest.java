@@ -0,0 +1,160 @@
+package io.github.danjos.intershop.config;
+
+import io.github.danjos.intershop.dto.SearchResultCache;
+import io.github.danjos.intershop.model.Item;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("CompactCacheSerializer Tests")
+class CompactCacheSerializerTest {
+
+   private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+   private final CompactCacheSerializer compact = new CompactCacheSerializer(json);
+
+   @Nested
+   @DisplayName("Round Trip Tests")
+   class RoundTripTests {
+
+       @Test
+       @DisplayName("Should round trip an item including nulls and unicode")
+       void item_ShouldRoundTrip() {
+           Item item = item(42L);
+           item.setDescription("Ноутбук для работы ✓");
+           item.setImgPath(null);
+
+           assertThat(compact.deserialize(compact.serialize(item))).isEqualTo(item);
+       }
+
+       @Test
+       @DisplayName("Should round trip a search page")
+       void searchResult_ShouldRoundTrip() {
+           SearchResultCache page = searchPage(10);
+
+           assertThat(compact.deserialize(compact.serialize(page))).isEqualTo(page);
+       }
+
+       @Test
+       @DisplayName("Should delegate other values to the fallback serializer")
+       void otherValues_ShouldUseFallback() {
+           byte[] bytes = compact.serialize("search:laptop:1:10:DEFAULT");
+
+           assertThat(bytes).isEqualTo(json.serialize("search:laptop:1:10:DEFAULT"));
+           assertThat(compact.deserialize(bytes)).isEqualTo("search:laptop:1:10:DEFAULT");
+       }
+
+       @Test
+       @DisplayName("Should read entries written by the JSON serializer")
+       void jsonEntries_ShouldStayReadable() {
+           Item item = item(7L);
+
+           assertThat(compact.deserialize(json.serialize(item))).isEqualTo(item);
+       }
+
+       @Test
+       @DisplayName("Should reject truncated payloads")
+       void truncatedPayload_ShouldThrow() {
+           byte[] bytes = compact.serialize(item(1L));
+           byte[] truncated = Arrays.copyOf(bytes, bytes.length - 4);
+
+           assertThatThrownBy(() -> compact.deserialize(truncated))
+                   .isInstanceOf(SerializationException.class);
+       }
+   }
+
+   @Nested
+   @DisplayName("Size Tests")
+   class SizeTests {
+
+       @Test
+       @DisplayName("Should be smaller than JSON for items and search pages")
+       void compact_ShouldBeSmallerThanJson() {
+           Item item = item(12345L);
+           SearchResultCache page = searchPage(20);
+
+           assertThat(compact.serialize(item).length).isLessThan(json.serialize(item).length * 2 / 3);
+           assertThat(compact.serialize(page).length).isLessThan(json.serialize(page).length / 2);
+       }
+   }
+
+   @Nested
+   @DisplayName("Schema Guard Tests")
+   class SchemaGuardTests {
+
+       @Test
+       @DisplayName("Should round trip every declared field of Item")
+       void item_EveryFieldShouldRoundTrip() throws Exception {
+           // A field added to Item without a codec change comes back with its default value here
+           Item item = new Item();
+           List<Field> fields = new ArrayList<>();
+           for (Field field : Item.class.getDeclaredFields()) {
+               if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                   continue;
+               }
+               field.setAccessible(true);
+               field.set(item, sampleValue(field));
+               fields.add(field);
+           }
+
+           Item copy = (Item) compact.deserialize(compact.serialize(item));
+
+           assertThat(fields).isNotEmpty();
+           for (Field field : fields) {
+               assertThat(field.get(copy))
+                       .as("Item.%s is not written by CompactCacheSerializer; extend the codec and bump SCHEMA_VERSION", field.getName())
+                       .isEqualTo(field.get(item));
+           }
+       }
+
+       private Object sampleValue(Field field) {
+           Class<?> type = field.getType();
+           if (type == Long.class || type == long.class) {
+               return 4242L;
+           }
+           if (type == Integer.class || type == int.class) {
+               return 17;
+           }
+           if (type == Double.class || type == double.class) {
+               return 12.34;
+           }
+           if (type == Boolean.class || type == boolean.class) {
+               return true;
+           }
+           if (type == String.class) {
+               return field.getName() + " value";
+           }
+           throw new AssertionError("Item." + field.getName() + " has type " + type.getSimpleName()
+                   + ", which this guard cannot fill; extend the codec and this test");
+       }
+   }
+
+   private static Item item(Long id) {
+       Item item = new Item();
+       item.setId(id);
+       item.setTitle("Laptop " + id);
+       item.setDescription("High performance laptop with a long enough description");
+       item.setPrice(999.99);
+       item.setImgPath("/images/laptop.jpg");
+       item.setStock(10);
+       return item;
+   }
+
+   private static SearchResultCache searchPage(int size) {
+       List<Item> items = new ArrayList<>();
+       for (long i = 1; i <= size; i++) {
+           items.add(item(i));
+       }
+       return new SearchResultCache(items, 1000, 0, size, 12, 1_700_000_000_000L);
+   }
+}
@@ -0,0 +1,81 @@
+package io.github.danjos.intershop.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("HttpClientConfig Tests")
+class HttpClientConfigTest {
+
+    private final HttpClientConfig config = new HttpClientConfig();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .port(0)
+                .doOnChannelInit((observer, channel, remoteAddress) -> connections.incrementAndGet())
+                .route(routes -> routes.get("/ping", (request, response) -> response.sendString(Mono.just("pong"))))
+                .bindNow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+        if (connectionProvider != null) {
+            connectionProvider.disposeLater().block();
+        }
+    }
+
+    private WebClient client(int maxConnections) {
+        connectionProvider = config.httpConnectionProvider(maxConnections, 100,
+                Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofMinutes(5));
+        return WebClient.builder()
+                .clientConnector(config.clientHttpConnector(connectionProvider,
+                        Duration.ofSeconds(2), Duration.ofSeconds(5), true, false))
+                .baseUrl("http://localhost:" + server.port())
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should reuse keep-alive connections for sequential calls")
+    void sequentialCalls_ShouldReuseConnection() {
+        WebClient webClient = client(10);
+
+        for (int call = 0; call < 20; call++) {
+            assertThat(webClient.get().uri("/ping").retrieve().bodyToMono(String.class).block()).isEqualTo("pong");
+        }
+
+        // Kept alive and handed back to the pool, not one TCP connection per call
+        assertThat(connections.get()).isBetween(1, 2);
+    }
+
+    @Test
+    @DisplayName("Should open no more connections than the pool allows")
+    void concurrentCalls_ShouldStayWithinPool() {
+        WebClient webClient = client(4);
+
+        Long responses = Flux.range(0, 50)
+                .flatMap(i -> webClient.get().uri("/ping").retrieve().bodyToMono(String.class))
+                .count()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(responses).isEqualTo(50);
+        assertThat(connections.get()).isBetween(1, 4);
+    }
+}
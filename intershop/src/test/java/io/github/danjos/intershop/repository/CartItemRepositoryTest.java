@@ -0,0 +1,93 @@
+package io.github.danjos.intershop.repository;
+
+import io.github.danjos.intershop.model.CartItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataR2dbcTest
+@ActiveProfiles("test")
+@DisplayName("CartItemRepository Tests")
+class CartItemRepositoryTest {
+
+    // Seeded by test-data.sql
+    private static final Long USER_ID = 100L;
+    private static final Long LAPTOP_ID = 100L;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @BeforeEach
+    void setUp() {
+        cartItemRepository.deleteAll().block();
+    }
+
+    @Nested
+    @DisplayName("Increment Quantity Tests")
+    class IncrementQuantityTests {
+
+        @Test
+        @DisplayName("Should insert a line with quantity 1 and then increment it")
+        void incrementQuantity_ShouldInsertThenIncrement() {
+            StepVerifier.create(cartItemRepository.incrementQuantity(USER_ID, LAPTOP_ID))
+                    .expectNext(1)
+                    .verifyComplete();
+            cartItemRepository.incrementQuantity(USER_ID, LAPTOP_ID).block();
+
+            StepVerifier.create(cartItemRepository.findByUserIdAndItemId(USER_ID, LAPTOP_ID))
+                    .assertNext(line -> assertThat(line.getQuantity()).isEqualTo(2))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should not lose increments under concurrent clicks")
+        void incrementQuantity_Concurrently_ShouldCountEveryClick() {
+            cartItemRepository.incrementQuantity(USER_ID, LAPTOP_ID).block();
+
+            Flux.range(0, 20)
+                    .flatMap(i -> cartItemRepository.incrementQuantity(USER_ID, LAPTOP_ID))
+                    .blockLast();
+
+            StepVerifier.create(cartItemRepository.findByUserId(USER_ID).map(CartItem::getQuantity))
+                    .expectNext(21)
+                    .verifyComplete();
+        }
+    }
+
+    @Nested
+    @DisplayName("Decrement Quantity Tests")
+    class DecrementQuantityTests {
+
+        @Test
+        @DisplayName("Should decrement and delete the line when the last unit is removed")
+        void decrementQuantityOrDelete_ShouldDecrementThenDelete() {
+            cartItemRepository.incrementQuantity(USER_ID, LAPTOP_ID).block();
+            cartItemRepository.incrementQuantity(USER_ID, LAPTOP_ID).block();
+
+            cartItemRepository.decrementQuantityOrDelete(USER_ID, LAPTOP_ID).block();
+            StepVerifier.create(cartItemRepository.findByUserIdAndItemId(USER_ID, LAPTOP_ID))
+                    .assertNext(line -> assertThat(line.getQuantity()).isEqualTo(1))
+                    .verifyComplete();
+
+            cartItemRepository.decrementQuantityOrDelete(USER_ID, LAPTOP_ID).block();
+            StepVerifier.create(cartItemRepository.findByUserIdAndItemId(USER_ID, LAPTOP_ID))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should do nothing for an item that is not in the cart")
+        void decrementQuantityOrDelete_WithMissingLine_ShouldAffectNothing() {
+            StepVerifier.create(cartItemRepository.decrementQuantityOrDelete(USER_ID, LAPTOP_ID))
+                    .expectNext(0)
+                    .verifyComplete();
+        }
+    }
+}
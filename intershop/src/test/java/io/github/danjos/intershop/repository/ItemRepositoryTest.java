@@ -408,4 +408,41 @@ class ItemRepositoryTest {
                     .verifyComplete();
         }
     }
+
+    @Nested
+    @DisplayName("Keyset Pagination Tests")
+    class KeysetPaginationTests {
+
+        @Test
+        @DisplayName("Should return items after the title boundary")
+        void findByTitleAfter_ShouldSeekPastBoundary() {
+            Flux<Item> result = itemRepository.findByTitleAfter(laptop.getTitle(), laptop.getId(), 10);
+
+            StepVerifier.create(result)
+                    .assertNext(item -> assertThat(item.getTitle()).isEqualTo("Smartphone"))
+                    .assertNext(item -> assertThat(item.getTitle()).isEqualTo("Tablet"))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should return items before the price boundary in descending order")
+        void findByPriceBefore_ShouldSeekBackwards() {
+            Flux<Item> result = itemRepository.findByPriceBefore(laptop.getPrice(), laptop.getId(), 10);
+
+            StepVerifier.create(result)
+                    .assertNext(item -> assertThat(item.getPrice()).isEqualTo(599.99))
+                    .assertNext(item -> assertThat(item.getPrice()).isEqualTo(399.99))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should respect the limit when seeking by id")
+        void findByIdAfter_ShouldRespectLimit() {
+            Flux<Item> result = itemRepository.findByIdAfter(laptop.getId(), 1);
+
+            StepVerifier.create(result)
+                    .assertNext(item -> assertThat(item.getId()).isGreaterThan(laptop.getId()))
+                    .verifyComplete();
+        }
+    }
 }
@@ -0,0 +1,99 @@
+package io.github.danjos.intershop.repository;
+
+import io.github.danjos.intershop.model.Order;
+import io.github.danjos.intershop.model.OrderItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataR2dbcTest
+@ActiveProfiles("test")
+@DisplayName("OrderItemRepository Tests")
+class OrderItemRepositoryTest {
+
+    // Seeded by test-data.sql
+    private static final Long USER_ID = 100L;
+    private static final Long LAPTOP_ID = 100L;
+    private static final Long SMARTPHONE_ID = 101L;
+    private static final Long TABLET_ID = 102L;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        orderItemRepository.deleteAll().block();
+        orderRepository.deleteAll().block();
+
+        Order newOrder = new Order();
+        newOrder.setUserId(USER_ID);
+        newOrder.setOrderDate(LocalDateTime.now());
+        newOrder.setStatus("PROCESSING");
+        order = orderRepository.save(newOrder).block();
+    }
+
+    @Nested
+    @DisplayName("Insert All Tests")
+    class InsertAllTests {
+
+        @Test
+        @DisplayName("Should insert every line and return them with generated ids in order")
+        void insertAll_ShouldAssignIdsInOrder() {
+            List<OrderItem> lines = List.of(
+                    line(LAPTOP_ID, 2, 999.99),
+                    line(SMARTPHONE_ID, 1, 599.99),
+                    line(TABLET_ID, 3, 399.99));
+
+            StepVerifier.create(orderItemRepository.insertAll(lines))
+                    .assertNext(saved -> assertThat(saved.getItemId()).isEqualTo(LAPTOP_ID))
+                    .assertNext(saved -> assertThat(saved.getItemId()).isEqualTo(SMARTPHONE_ID))
+                    .assertNext(saved -> assertThat(saved.getItemId()).isEqualTo(TABLET_ID))
+                    .verifyComplete();
+
+            assertThat(lines).extracting(OrderItem::getId).doesNotContainNull().doesNotHaveDuplicates();
+            StepVerifier.create(orderItemRepository.findByOrderId(order.getId()).collectList())
+                    .assertNext(stored -> assertThat(stored)
+                            .extracting(OrderItem::getId, OrderItem::getItemId, OrderItem::getQuantity)
+                            .containsExactlyInAnyOrder(
+                                    tuple(lines.get(0).getId(), LAPTOP_ID, 2),
+                                    tuple(lines.get(1).getId(), SMARTPHONE_ID, 1),
+                                    tuple(lines.get(2).getId(), TABLET_ID, 3)))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should do nothing for an empty list")
+        void insertAll_WithNoLines_ShouldInsertNothing() {
+            StepVerifier.create(orderItemRepository.insertAll(List.of())).verifyComplete();
+
+            StepVerifier.create(orderItemRepository.count())
+                    .expectNext(0L)
+                    .verifyComplete();
+        }
+    }
+
+    private OrderItem line(Long itemId, int quantity, double price) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setOrderId(order.getId());
+        orderItem.setItemId(itemId);
+        orderItem.setQuantity(quantity);
+        orderItem.setPrice(price);
+        return orderItem;
+    }
+}
@@ -0,0 +1,184 @@
+package io.github.danjos.intershop.service;
+
+import io.github.danjos.intershop.dto.CartItemDto;
+import io.github.danjos.intershop.dto.CartSnapshot;
+import io.github.danjos.intershop.model.Item;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CartService Tests")
+class CartServiceTest {
+
+   @Mock
+   private ItemService itemService;
+
+   @Mock
+   private PaymentClientService paymentClientService;
+
+   @Mock
+   private CartStore cartStore;
+
+   @InjectMocks
+   private CartService cartService;
+
+   @Nested
+   @DisplayName("Cart Snapshot Tests")
+   class CartSnapshotTests {
+
+       @Test
+       @DisplayName("Should join cart rows to items by id with total and unit count")
+       void getCartSnapshot_ShouldJoinRowsToItems() {
+           when(cartStore.quantities(1L)).thenReturn(Mono.just(quantities(20L, 2, 10L, 1, 30L, 5)));
+           // Item 30 was deleted from the catalog; items come back in request order
+           when(itemService.getItemByIds(any())).thenReturn(Flux.just(item(20L, 100.0), item(10L, 50.0)));
+
+           StepVerifier.create(cartService.getCartSnapshot(1L))
+                   .assertNext(snapshot -> {
+                       assertThat(snapshot.getLines()).extracting(CartItemDto::getId).containsExactly(20L, 10L);
+                       assertThat(snapshot.getLines()).extracting(CartItemDto::getCount).containsExactly(2, 1);
+                       assertThat(snapshot.getTotal()).isEqualTo(250.0);
+                       assertThat(snapshot.getTotalAmount()).isEqualByComparingTo("250.00");
+                       assertThat(snapshot.getItemCount()).isEqualTo(3);
+                       assertThat(snapshot.quantities()).containsExactly(Map.entry(20L, 2), Map.entry(10L, 1));
+                   })
+                   .verifyComplete();
+       }
+
+       @Test
+       @DisplayName("Should return an empty snapshot without looking up items")
+       void getCartSnapshot_WithEmptyCart_ShouldSkipItemLookup() {
+           when(cartStore.quantities(1L)).thenReturn(Mono.just(Map.of()));
+
+           StepVerifier.create(cartService.getCartSnapshot(1L))
+                   .assertNext(snapshot -> {
+                       assertThat(snapshot.isEmpty()).isTrue();
+                       assertThat(snapshot.getTotal()).isZero();
+                   })
+                   .verifyComplete();
+           verify(itemService, never()).getItemByIds(any());
+       }
+   }
+
+   @Nested
+   @DisplayName("Request Snapshot Tests")
+   class RequestSnapshotTests {
+
+       @Test
+       @DisplayName("Should load the cart once per exchange for every consumer")
+       void getCartSnapshot_WithinOneExchange_ShouldLoadOnce() {
+           when(cartStore.quantities(1L)).thenReturn(Mono.just(quantities(10L, 2)));
+           when(itemService.getItemByIds(any())).thenReturn(Flux.just(item(10L, 50.0)));
+           MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/cart/items"));
+
+           Mono<CartSnapshot> cart = cartService.getCartSnapshot(exchange, 1L);
+           StepVerifier.create(Mono.zip(
+                           cart.map(CartSnapshot::getLines),
+                           cart.map(CartSnapshot::getTotal),
+                           cartService.getCartSnapshot(exchange, 1L).map(cartService::isCheckoutEnabled)))
+                   .assertNext(tuple -> {
+                       assertThat(tuple.getT1()).hasSize(1);
+                       assertThat(tuple.getT2()).isEqualTo(100.0);
+                       assertThat(tuple.getT3()).isTrue();
+                   })
+                   .verifyComplete();
+
+           verify(cartStore, times(1)).quantities(1L);
+           verify(itemService, times(1)).getItemByIds(any());
+       }
+
+       @Test
+       @DisplayName("Should load the cart again for a new exchange")
+       void getCartSnapshot_AcrossExchanges_ShouldReload() {
+           when(cartStore.quantities(1L)).thenReturn(Mono.just(Map.of()));
+
+           cartService.getCartSnapshot(MockServerWebExchange.from(MockServerHttpRequest.get("/cart/items")), 1L).block();
+           cartService.getCartSnapshot(MockServerWebExchange.from(MockServerHttpRequest.get("/cart/items")), 1L).block();
+
+           verify(cartStore, times(2)).quantities(1L);
+       }
+   }
+
+   @Nested
+   @DisplayName("Large Cart Tests")
+   class LargeCartTests {
+
+       @Test
+       @DisplayName("Should keep line order, quantities and totals for a 5,000 line cart")
+       void assemble_WithLargeCart_ShouldKeepOrderAndTotals() {
+           Map<Long, Integer> quantities = new LinkedHashMap<>();
+           List<Item> items = new ArrayList<>();
+           List<Long> expectedIds = new ArrayList<>();
+           Map<Long, Integer> expectedQuantities = new LinkedHashMap<>();
+           BigDecimal expectedTotal = BigDecimal.ZERO;
+           int expectedUnits = 0;
+           for (long id = 1; id <= 5_000; id++) {
+               quantities.put(id * 31, (int) (id % 5) + 1);
+           }
+           // Items come back in a different order than the cart rows, one in ten is gone from the catalog
+           for (long id = 5_000; id >= 1; id--) {
+               if (id % 10 == 0) {
+                   continue;
+               }
+               Item item = item(id * 31, id / 100.0);
+               items.add(item);
+               expectedIds.add(item.getId());
+               int count = quantities.get(item.getId());
+               expectedQuantities.put(item.getId(), count);
+               expectedTotal = expectedTotal.add(BigDecimal.valueOf(item.getPrice()).multiply(BigDecimal.valueOf(count)));
+               expectedUnits += count;
+           }
+           // An item that is not in the cart is ignored
+           items.add(item(7L, 1.0));
+
+           CartSnapshot snapshot = CartService.assemble(quantities, items);
+
+           assertThat(snapshot.getLines()).extracting(CartItemDto::getId).containsExactlyElementsOf(expectedIds);
+           assertThat(snapshot.getLines()).allSatisfy(line -> assertThat(line.getCount()).isEqualTo(quantities.get(line.getId())));
+           assertThat(snapshot.getItemCount()).isEqualTo(expectedUnits);
+           assertThat(snapshot.getTotalAmount()).isEqualByComparingTo(expectedTotal);
+           assertThat(snapshot.getTotal()).isCloseTo(expectedTotal.doubleValue(), within(1e-6));
+           assertThat(snapshot.quantities()).containsExactlyEntriesOf(expectedQuantities);
+       }
+   }
+
+   private static Map<Long, Integer> quantities(Object... itemIdsAndQuantities) {
+       Map<Long, Integer> quantities = new LinkedHashMap<>();
+       for (int i = 0; i < itemIdsAndQuantities.length; i += 2) {
+           quantities.put((Long) itemIdsAndQuantities[i], (Integer) itemIdsAndQuantities[i + 1]);
+       }
+       return quantities;
+   }
+
+   private static Item item(Long id, double price) {
+       Item item = new Item();
+       item.setId(id);
+       item.setTitle("Item " + id);
+       item.setPrice(price);
+       return item;
+   }
+}
@@ -0,0 +1,187 @@
+package io.github.danjos.intershop.service;
+
+import io.github.danjos.intershop.dto.CartItemDto;
+import io.github.danjos.intershop.dto.CartSnapshot;
+import io.github.danjos.intershop.exception.InsufficientBalanceException;
+import io.github.danjos.intershop.model.Item;
+import io.github.danjos.intershop.model.Order;
+import io.github.danjos.intershop.model.User;
+import io.github.danjos.intershop.repository.OrderItemRepository;
+import io.github.danjos.intershop.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checkout against the real schema: the transactions, the order states and
+ * the unique index on {@code (user_id, idempotency_key)} are the database's,
+ * only the catalog, the payment and the cart store are stubbed.
+ */
+@DataR2dbcTest
+@ActiveProfiles("test")
+@DisplayName("CheckoutService Database Tests")
+class CheckoutServiceDatabaseTest {
+
+   // Seeded by test-data.sql
+   private static final Long USER_ID = 100L;
+   private static final String USERNAME = "testuser";
+   private static final BigDecimal TOTAL = new BigDecimal("2199.97");
+
+   @Autowired
+   private OrderRepository orderRepository;
+
+   @Autowired
+   private OrderItemRepository orderItemRepository;
+
+   @Autowired
+   private ReactiveTransactionManager transactionManager;
+
+   private PaymentClientService paymentClientService;
+   private CartService cartService;
+   private OrderService orderService;
+   private CheckoutService checkoutService;
+
+   private User user;
+   private CartSnapshot cart;
+   private String token;
+
+   @BeforeEach
+   void setUp() {
+       Item laptop = item(100L, 999.99);
+       Item smartphone = item(101L, 599.99);
+       ItemService itemService = mock(ItemService.class);
+       when(itemService.getItemByIds(any())).thenReturn(Flux.just(laptop, smartphone));
+
+       paymentClientService = mock(PaymentClientService.class);
+       cartService = mock(CartService.class);
+       orderService = spy(new OrderService(orderRepository, orderItemRepository, itemService));
+       checkoutService = new CheckoutService(orderService, paymentClientService, cartService,
+               TransactionalOperator.create(transactionManager));
+
+       user = new User();
+       user.setId(USER_ID);
+       user.setUsername(USERNAME);
+       cart = new CartSnapshot(List.of(new CartItemDto(laptop, 1), new CartItemDto(smartphone, 2)));
+       // Every test checks out with its own token in the shared in-memory database
+       token = UUID.randomUUID().toString();
+   }
+
+   @Nested
+   @DisplayName("Failed Payment Tests")
+   class FailedPaymentTests {
+
+       @Test
+       @DisplayName("Should remove the order and its lines when the debit comes back empty")
+       void checkout_WithInsufficientBalance_ShouldLeaveNoOrder() {
+           long ordersBefore = orderRepository.count().block();
+           long orderItemsBefore = orderItemRepository.count().block();
+           when(paymentClientService.debitBalance(eq(USERNAME), eq(TOTAL), eq(paymentId())))
+                   .thenReturn(Mono.empty());
+
+           StepVerifier.create(checkoutService.checkout(user, Mono.just(cart), token))
+                   .expectError(InsufficientBalanceException.class)
+                   .verify();
+
+           // The pending order was committed before the debit, the declined debit deleted it again
+           verify(paymentClientService).debitBalance(eq(USERNAME), eq(TOTAL), eq(paymentId()));
+           verify(cartService, never()).clearUserCart(any());
+           StepVerifier.create(orderRepository.findByUserIdAndIdempotencyKey(USER_ID, token))
+                   .verifyComplete();
+           assertThat(orderRepository.count().block()).isEqualTo(ordersBefore);
+           assertThat(orderItemRepository.count().block()).isEqualTo(orderItemsBefore);
+       }
+
+       @Test
+       @DisplayName("Should keep the order pending after a lost debit response and finish it on resubmit")
+       void checkout_AfterLostDebitResponse_ShouldResumeWithSamePaymentReference() {
+           when(paymentClientService.debitBalance(eq(USERNAME), eq(TOTAL), eq(paymentId())))
+                   .thenReturn(Mono.error(new IllegalStateException("response timeout")))
+                   .thenReturn(Mono.just(new BigDecimal("800.03")));
+           when(cartService.clearUserCart(USER_ID)).thenReturn(Mono.empty());
+
+           StepVerifier.create(checkoutService.checkout(user, Mono.just(cart), token))
+                   .expectError(IllegalStateException.class)
+                   .verify();
+           Order pending = orderRepository.findByUserIdAndIdempotencyKey(USER_ID, token).block();
+           assertThat(pending.getStatus()).isEqualTo(Order.PENDING);
+           long ordersAfterFirst = orderRepository.count().block();
+
+           StepVerifier.create(checkoutService.checkout(user, Mono.just(cart), token))
+                   .assertNext(order -> assertThat(order.getId()).isEqualTo(pending.getId()))
+                   .verifyComplete();
+
+           // Both attempts asked for the same debit, so the payment service charges it once
+           verify(paymentClientService, times(2)).debitBalance(eq(USERNAME), eq(TOTAL), eq(paymentId()));
+           verify(orderService, times(1)).createOrderFromCart(cart.quantities(), user, token);
+           StepVerifier.create(orderRepository.findByUserIdAndIdempotencyKey(USER_ID, token))
+                   .assertNext(order -> assertThat(order.getStatus()).isEqualTo(Order.PAID))
+                   .verifyComplete();
+           assertThat(orderRepository.count().block()).isEqualTo(ordersAfterFirst);
+       }
+   }
+
+   @Nested
+   @DisplayName("Repeated Token Tests")
+   class RepeatedTokenTests {
+
+       @Test
+       @DisplayName("Should return the existing order when a repeated token only meets the unique index")
+       void checkout_WithTokenClaimedPastLookup_ShouldReturnExistingOrder() {
+           when(paymentClientService.debitBalance(eq(USERNAME), eq(TOTAL), eq(paymentId())))
+                   .thenReturn(Mono.just(new BigDecimal("800.03")));
+           when(cartService.clearUserCart(USER_ID)).thenReturn(Mono.empty());
+           Order placed = checkoutService.checkout(user, Mono.just(cart), token).block();
+           long ordersAfterFirst = orderRepository.count().block();
+           long orderItemsAfterFirst = orderItemRepository.count().block();
+
+           // A concurrent submit looked before the first one committed: only the index stops it
+           doReturn(Mono.empty()).doCallRealMethod().when(orderService).findByIdempotencyKey(USER_ID, token);
+
+           StepVerifier.create(checkoutService.checkout(user, Mono.just(cart), token))
+                   .assertNext(order -> assertThat(order.getId()).isEqualTo(placed.getId()))
+                   .verifyComplete();
+
+           verify(orderService, times(2)).createOrderFromCart(cart.quantities(), user, token);
+           verify(paymentClientService, times(1)).debitBalance(eq(USERNAME), eq(TOTAL), eq(paymentId()));
+           verify(cartService, times(1)).clearUserCart(USER_ID);
+           assertThat(orderRepository.count().block()).isEqualTo(ordersAfterFirst);
+           assertThat(orderItemRepository.count().block()).isEqualTo(orderItemsAfterFirst);
+       }
+   }
+
+   private String paymentId() {
+       return "checkout-" + USER_ID + "-" + token;
+   }
+
+   private static Item item(Long id, double price) {
+       Item item = new Item();
+       item.setId(id);
+       item.setTitle("Item " + id);
+       item.setPrice(price);
+       return item;
+   }
+}
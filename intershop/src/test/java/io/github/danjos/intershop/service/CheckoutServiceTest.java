@@ -0,0 +1,230 @@
+package io.github.danjos.intershop.service;
+
+import io.github.danjos.intershop.dto.CartItemDto;
+import io.github.danjos.intershop.dto.CartSnapshot;
+import io.github.danjos.intershop.exception.InsufficientBalanceException;
+import io.github.danjos.intershop.model.Item;
+import io.github.danjos.intershop.model.Order;
+import io.github.danjos.intershop.model.OrderItem;
+import io.github.danjos.intershop.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CheckoutService Tests")
+class CheckoutServiceTest {
+
+   private static final String TOKEN = "3f1c2d9e-token";
+   private static final String PAYMENT_ID = "checkout-1-" + TOKEN;
+
+   @Mock
+   private OrderService orderService;
+
+   @Mock
+   private PaymentClientService paymentClientService;
+
+   @Mock
+   private CartService cartService;
+
+   @Mock
+   private TransactionalOperator transactionalOperator;
+
+   @InjectMocks
+   private CheckoutService checkoutService;
+
+   private User user;
+   private CartSnapshot cart;
+   private Order order;
+
+   @BeforeEach
+   void setUp() {
+       user = new User();
+       user.setId(1L);
+       user.setUsername("testuser");
+
+       Item laptop = new Item();
+       laptop.setId(10L);
+       laptop.setTitle("Laptop");
+       laptop.setPrice(500.0);
+       cart = new CartSnapshot(List.of(new CartItemDto(laptop, 2)));
+
+       order = new Order();
+       order.setId(7L);
+       order.setUserId(1L);
+       order.setIdempotencyKey(TOKEN);
+       order.setStatus(Order.PENDING);
+   }
+
+   @Nested
+   @DisplayName("New Checkout Tests")
+   class NewCheckoutTests {
+
+       @Test
+       @DisplayName("Should commit the order, debit the total by token, then mark it paid and clear the cart")
+       void checkout_WithNewToken_ShouldPlaceOrder() {
+           runInTransaction();
+           when(orderService.findByIdempotencyKey(1L, TOKEN)).thenReturn(Mono.empty());
+           when(orderService.createOrderFromCart(Map.of(10L, 2), user, TOKEN)).thenReturn(Mono.just(order));
+           when(paymentClientService.debitBalance("testuser", new BigDecimal("1000.00"), PAYMENT_ID))
+                   .thenReturn(Mono.just(new BigDecimal("200.00")));
+           when(orderService.markPaid(7L)).thenReturn(Mono.empty());
+           when(cartService.clearUserCart(1L)).thenReturn(Mono.empty());
+
+           StepVerifier.create(checkoutService.checkout(user, Mono.just(cart), TOKEN))
+                   .assertNext(placed -> assertThat(placed.getStatus()).isEqualTo(Order.PAID))
+                   .verifyComplete();
+
+           // One transaction for the pending order, one for marking it paid with the cart clear
+           verify(transactionalOperator, times(2)).transactional(any(Mono.class));
+           verify(cartService).clearUserCart(1L);
+       }
+
+       @Test
+       @DisplayName("Should delete the pending order and keep the cart when the balance is too low")
+       void checkout_WithInsufficientBalance_ShouldFail() {
+           runInTransaction();
+           when(orderService.findByIdempotencyKey(1L, TOKEN)).thenReturn(Mono.empty());
+           when(orderService.createOrderFromCart(Map.of(10L, 2), user, TOKEN)).thenReturn(Mono.just(order));
+           when(paymentClientService.debitBalance("testuser", new BigDecimal("1000.00"), PAYMENT_ID)).thenReturn(Mono.empty());
+           when(orderService.deletePendingOrder(7L)).thenReturn(Mono.empty());
+
+           StepVerifier.create(checkoutService.checkout(user, Mono.just(cart), TOKEN))
+                   .expectError(InsufficientBalanceException.class)
+                   .verify();
+
+           verify(orderService).deletePendingOrder(7L);
+           verify(orderService, never()).markPaid(any());
+           verify(cartService, never()).clearUserCart(any());
+       }
+
+       @Test
+       @DisplayName("Should keep the order pending when the payment service fails")
+       void checkout_WhenDebitFails_ShouldKeepOrderPending() {
+           runInTransaction();
+           when(orderService.findByIdempotencyKey(1L, TOKEN)).thenReturn(Mono.empty());
+           when(orderService.createOrderFromCart(Map.of(10L, 2), user, TOKEN)).thenReturn(Mono.just(order));
+           when(paymentClientService.debitBalance("testuser", new BigDecimal("1000.00"), PAYMENT_ID))
+                   .thenReturn(Mono.error(new IllegalStateException("response timeout")));
+
+           StepVerifier.create(checkoutService.checkout(user, Mono.just(cart), TOKEN))
+                   .expectError(IllegalStateException.class)
+                   .verify();
+
+           verify(orderService, never()).deletePendingOrder(any());
+           verify(orderService, never()).markPaid(any());
+           verify(cartService, never()).clearUserCart(any());
+       }
+
+       @Test
+       @DisplayName("Should place nothing for an empty cart")
+       void checkout_WithEmptyCart_ShouldCompleteEmpty() {
+           when(orderService.findByIdempotencyKey(1L, TOKEN)).thenReturn(Mono.empty());
+
+           StepVerifier.create(checkoutService.checkout(user, Mono.just(CartSnapshot.empty()), TOKEN))
+                   .verifyComplete();
+
+           verify(orderService, never()).createOrderFromCart(any(), any(), anyString());
+       }
+   }
+
+   @Nested
+   @DisplayName("Repeated Checkout Tests")
+   class RepeatedCheckoutTests {
+
+       @Test
+       @DisplayName("Should return the paid order without reading the cart or charging again")
+       void checkout_WithUsedToken_ShouldReplayOrder() {
+           order.setStatus(Order.PAID);
+           when(orderService.findByIdempotencyKey(1L, TOKEN)).thenReturn(Mono.just(order));
+           Mono<CartSnapshot> untouchedCart = Mono.error(new AssertionError("cart must not be read"));
+
+           StepVerifier.create(checkoutService.checkout(user, untouchedCart, TOKEN))
+                   .expectNext(order)
+                   .verifyComplete();
+
+           verify(paymentClientService, never()).debitBalance(any(), any(), anyString());
+           verify(cartService, never()).clearUserCart(any());
+       }
+
+       @Test
+       @DisplayName("Should finish the payment of an order left pending, with the same payment reference")
+       void checkout_WithPendingOrder_ShouldResumePayment() {
+           runInTransaction();
+           Order pending = new Order();
+           pending.setId(7L);
+           pending.setUserId(1L);
+           pending.setStatus(Order.PENDING);
+           pending.setItems(List.of(orderItem(10L, 500.0, 2)));
+           when(orderService.findByIdempotencyKey(1L, TOKEN)).thenReturn(Mono.just(order));
+           when(orderService.getOrderById(7L)).thenReturn(Mono.just(pending));
+           // The first attempt was charged; the payment service answers with that debit
+           when(paymentClientService.debitBalance("testuser", new BigDecimal("1000.00"), PAYMENT_ID))
+                   .thenReturn(Mono.just(new BigDecimal("200.00")));
+           when(orderService.markPaid(7L)).thenReturn(Mono.empty());
+           when(cartService.clearUserCart(1L)).thenReturn(Mono.empty());
+           Mono<CartSnapshot> untouchedCart = Mono.error(new AssertionError("cart must not be read"));
+
+           StepVerifier.create(checkoutService.checkout(user, untouchedCart, TOKEN))
+                   .assertNext(resumed -> {
+                       assertThat(resumed.getId()).isEqualTo(7L);
+                       assertThat(resumed.getStatus()).isEqualTo(Order.PAID);
+                   })
+                   .verifyComplete();
+
+           verify(orderService, never()).createOrderFromCart(any(), any(), anyString());
+           verify(orderService).markPaid(7L);
+       }
+
+       @Test
+       @DisplayName("Should return the order of a concurrent submit that claimed the token first")
+       void checkout_WhenConcurrentSubmitWins_ShouldReturnItsOrder() {
+           runInTransaction();
+           order.setStatus(Order.PAID);
+           when(orderService.findByIdempotencyKey(1L, TOKEN)).thenReturn(Mono.empty(), Mono.just(order));
+           when(orderService.createOrderFromCart(Map.of(10L, 2), user, TOKEN))
+                   .thenReturn(Mono.error(new DuplicateKeyException("idx_orders_user_idempotency")));
+
+           StepVerifier.create(checkoutService.checkout(user, Mono.just(cart), TOKEN))
+                   .expectNext(order)
+                   .verifyComplete();
+
+           verify(paymentClientService, never()).debitBalance(any(), any(), anyString());
+       }
+   }
+
+   private static OrderItem orderItem(Long itemId, double price, int quantity) {
+       OrderItem orderItem = new OrderItem();
+       orderItem.setOrderId(7L);
+       orderItem.setItemId(itemId);
+       orderItem.setPrice(price);
+       orderItem.setQuantity(quantity);
+       return orderItem;
+   }
+
+   @SuppressWarnings("unchecked")
+   private void runInTransaction() {
+       when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+   }
+}
@@ -0,0 +1,131 @@
+package io.github.danjos.intershop.service;
+
+import io.github.danjos.intershop.model.Item;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ItemBatchLookup Tests")
+class ItemBatchLookupTest {
+
+   @Nested
+   @DisplayName("Correctness Tests")
+   class CorrectnessTests {
+
+       @Test
+       @DisplayName("Should keep request order regardless of reply order")
+       void result_ShouldFollowRequestOrder() {
+           ItemBatchLookup lookup = new ItemBatchLookup(List.of(30L, 10L, 20L));
+
+           lookup.fillAll(Arrays.asList(item(20L), item(30L)));
+           lookup.fill(item(10L));
+
+           assertThat(ids(lookup.result())).containsExactly(30L, 10L, 20L);
+           assertThat(lookup.missingIds()).isEmpty();
+       }
+
+       @Test
+       @DisplayName("Should not shift hits when cache replies contain gaps")
+       void fillAll_WithDroppedReplies_ShouldTrackHitsById() {
+           ItemBatchLookup lookup = new ItemBatchLookup(new LinkedHashSet<>(List.of(1L, 2L, 3L, 4L)));
+
+           // Reply for id 1 and id 3 missing entirely, not just null
+           lookup.fillAll(Arrays.asList(item(2L), item(4L)));
+
+           assertThat(lookup.filled()).isEqualTo(2);
+           assertThat(lookup.missingIds()).containsExactly(1L, 3L);
+           assertThat(ids(lookup.result())).containsExactly(2L, 4L);
+       }
+
+       @Test
+       @DisplayName("Should ignore nulls, foreign values and unrequested ids")
+       void fillAll_WithUnexpectedValues_ShouldIgnoreThem() {
+           ItemBatchLookup lookup = new ItemBatchLookup(List.of(1L, 2L));
+
+           lookup.fillAll(Arrays.asList(null, "not an item", item(99L), item(1L)));
+
+           assertThat(lookup.filled()).isEqualTo(1);
+           assertThat(lookup.missingIds()).containsExactly(2L);
+           assertThat(lookup.fill(item(99L))).isFalse();
+       }
+
+       @Test
+       @DisplayName("Should deduplicate ids and build cache keys in request order")
+       void cacheKeys_ShouldBeUniqueAndOrdered() {
+           ItemBatchLookup lookup = new ItemBatchLookup(Arrays.asList(5L, 7L, 5L, null));
+
+           assertThat(lookup.size()).isEqualTo(2);
+           assertThat(lookup.cacheKeys("item:")).containsExactly("item:5", "item:7");
+       }
+
+       @Test
+       @DisplayName("Should count a slot once when filled twice")
+       void fill_Twice_ShouldCountOnce() {
+           ItemBatchLookup lookup = new ItemBatchLookup(Set.of(1L));
+
+           lookup.fill(item(1L));
+           lookup.fill(item(1L));
+
+           assertThat(lookup.filled()).isEqualTo(1);
+           assertThat(lookup.result()).hasSize(1);
+       }
+   }
+
+   @Nested
+   @DisplayName("Large Lookup Tests")
+   class LargeLookupTests {
+
+       @Test
+       @DisplayName("Should resolve 10k ids with duplicates and misses in request order")
+       void lookup_With10kIds_ShouldKeepOrderAndTrackMisses() {
+           List<Long> requested = new ArrayList<>();
+           List<Item> replies = new ArrayList<>();
+           List<Long> expectedHits = new ArrayList<>();
+           List<Long> expectedMisses = new ArrayList<>();
+           for (long i = 0; i < 10_000; i++) {
+               long id = i * 7919;
+               requested.add(id);
+               if (i % 10 == 0) {
+                   // Every tenth id is requested twice
+                   requested.add(id);
+               }
+               if (i % 3 == 0) {
+                   expectedMisses.add(id);
+               } else {
+                   replies.add(item(id));
+                   expectedHits.add(id);
+               }
+           }
+           // Replies arrive in reverse order
+           Collections.reverse(replies);
+
+           ItemBatchLookup lookup = new ItemBatchLookup(requested);
+           lookup.fillAll(replies);
+
+           assertThat(lookup.size()).isEqualTo(10_000);
+           assertThat(lookup.filled()).isEqualTo(expectedHits.size());
+           assertThat(lookup.missingIds()).containsExactlyElementsOf(expectedMisses);
+           assertThat(ids(lookup.result())).containsExactlyElementsOf(expectedHits);
+       }
+   }
+
+   private static Item item(Long id) {
+       Item item = new Item();
+       item.setId(id);
+       item.setTitle("Item " + id);
+       return item;
+   }
+
+   private static List<Long> ids(List<Item> items) {
+       return items.stream().map(Item::getId).toList();
+   }
+}
@@ -0,0 +1,65 @@
+package io.github.danjos.intershop.service;
+
+import io.github.danjos.intershop.AbstractTestContainerTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import reactor.core.publisher.Flux;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Item cache clearing Tests")
+class ItemCacheClearTest extends AbstractTestContainerTest {
+
+   // Several SCAN pages of 1000 keys
+   private static final int ITEM_KEY_COUNT = 3_500;
+   private static final List<String> OTHER_KEYS = List.of(
+           "item-cache-clear-test:item:1", "items:cache-clear-test", "itemcache-clear-test:1", "search:cache-clear-test");
+
+   @Autowired
+   private ReactiveRedisTemplate<String, Object> redisTemplate;
+
+   @Autowired
+   private ItemService itemService;
+
+   @BeforeEach
+   void setUp() {
+       Map<String, Object> entries = new HashMap<>();
+       for (int i = 0; i < ITEM_KEY_COUNT; i++) {
+           entries.put("item:" + (1_000_000 + i), "x");
+       }
+       OTHER_KEYS.forEach(key -> entries.put(key, "keep"));
+       redisTemplate.opsForValue().multiSet(entries).block();
+   }
+
+   @AfterEach
+   void tearDown() {
+       redisTemplate.delete(OTHER_KEYS.toArray(new String[0])).block();
+   }
+
+   @Test
+   @DisplayName("Should unlink every item key across SCAN pages and keep the others")
+   void clearAllItemCache_ShouldUnlinkOnlyItemKeys() {
+       itemService.clearAllItemCache().block();
+
+       long remaining = redisTemplate.scan(ScanOptions.scanOptions().match("item:*").count(1000).build())
+               .count()
+               .block();
+
+       assertThat(remaining).isZero();
+       long kept = Flux.fromIterable(OTHER_KEYS)
+               .concatMap(redisTemplate::hasKey)
+               .filter(Boolean::booleanValue)
+               .count()
+               .block();
+       assertThat(kept).isEqualTo(OTHER_KEYS.size());
+   }
+}
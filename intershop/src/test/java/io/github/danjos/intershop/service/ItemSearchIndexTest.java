@@ -0,0 +1,128 @@
+package io.github.danjos.intershop.service;
+
+import io.github.danjos.intershop.model.Item;
+import io.github.danjos.intershop.repository.ItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ItemSearchIndex Tests")
+class ItemSearchIndexTest {
+
+   @Mock
+   private ItemRepository itemRepository;
+
+   private ItemSearchIndex index;
+
+   @BeforeEach
+   void setUp() {
+       index = new ItemSearchIndex(itemRepository, true);
+       when(itemRepository.findAll()).thenReturn(Flux.just(
+               item(1L, "Laptop", "High performance laptop"),
+               item(2L, "Smartphone", "Latest smartphone"),
+               item(3L, "Gaming laptop", "RGB keyboard, 16GB RAM"),
+               item(4L, "Ноутбук", "Лёгкий ноутбук для работы")));
+
+       StepVerifier.create(index.rebuild()).verifyComplete();
+   }
+
+   @Nested
+   @DisplayName("Search Tests")
+   class SearchTests {
+
+       @Test
+       @DisplayName("Should match case-insensitive word prefixes in title and description")
+       void search_ShouldMatchWordPrefixes() {
+           assertThat(index.isReady()).isTrue();
+           assertThat(index.search("LAP")).containsExactly(1L, 3L);
+           assertThat(index.search("keyb")).containsExactly(3L);
+           assertThat(index.search("ноут")).containsExactly(4L);
+       }
+
+       @Test
+       @DisplayName("Should require every query token to match")
+       void search_WithSeveralTokens_ShouldIntersect() {
+           assertThat(index.search("laptop gam")).containsExactly(3L);
+           assertThat(index.search("laptop phone")).isEmpty();
+       }
+
+       @Test
+       @DisplayName("Should not match inside words or on blank queries")
+       void search_ShouldNotMatchInfixesOrBlankQueries() {
+           assertThat(index.search("top")).isEmpty();
+           assertThat(index.search(" ,. ")).isEmpty();
+       }
+   }
+
+   @Nested
+   @DisplayName("Update Tests")
+   class UpdateTests {
+
+       @Test
+       @DisplayName("Should replace the tokens of a reindexed item")
+       void index_ShouldReplacePreviousTokens() {
+           index.index(item(2L, "Tablet", "Portable tablet device"));
+
+           assertThat(index.search("smart")).isEmpty();
+           assertThat(index.search("tab")).containsExactly(2L);
+       }
+
+       @Test
+       @DisplayName("Should drop removed items")
+       void remove_ShouldDropItem() {
+           index.remove(1L);
+
+           assertThat(index.search("laptop")).containsExactly(3L);
+       }
+   }
+
+   @Nested
+   @DisplayName("Rebuild Tests")
+   class RebuildTests {
+
+       @Test
+       @DisplayName("Should keep changes made while a rebuild reads the catalog")
+       void rebuild_WithConcurrentChanges_ShouldReplayThem() {
+           Sinks.Many<Item> catalog = Sinks.many().unicast().onBackpressureBuffer();
+           when(itemRepository.findAll()).thenReturn(catalog.asFlux());
+           Mono<Void> rebuild = index.rebuild().cache();
+           rebuild.subscribe();
+
+           catalog.tryEmitNext(item(1L, "Laptop", "High performance laptop"));
+           // Changes while the scan is running: a new item, a removal and a rename
+           index.index(item(5L, "Wireless mouse", "Compact mouse"));
+           index.remove(2L);
+           index.index(item(3L, "Gaming notebook", "RGB keyboard"));
+           // The scan then delivers rows read before those changes
+           catalog.tryEmitNext(item(2L, "Smartphone", "Latest smartphone"));
+           catalog.tryEmitNext(item(3L, "Gaming laptop", "RGB keyboard, 16GB RAM"));
+           catalog.tryEmitComplete();
+           rebuild.block();
+
+           assertThat(index.search("mouse")).containsExactly(5L);
+           assertThat(index.search("smart")).isEmpty();
+           assertThat(index.search("laptop")).containsExactly(1L);
+           assertThat(index.search("notebook")).containsExactly(3L);
+       }
+   }
+
+   private static Item item(Long id, String title, String description) {
+       Item item = new Item();
+       item.setId(id);
+       item.setTitle(title);
+       item.setDescription(description);
+       return item;
+   }
+}
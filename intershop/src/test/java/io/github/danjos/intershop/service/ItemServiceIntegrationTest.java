@@ -31,6 +31,9 @@ class ItemServiceIntegrationTest extends AbstractTestContainerTest {
     @Autowired
     private ItemRepository itemRepository;
 
+    @Autowired
+    private ItemSearchIndex searchIndex;
+
     private Item laptop;
     private Item smartphone;
     private Item tablet;
@@ -63,6 +66,7 @@ class ItemServiceIntegrationTest extends AbstractTestContainerTest {
         itemRepository.deleteAll()
                 .thenMany(itemRepository.saveAll(List.of(laptop, smartphone, tablet)))
                 .blockLast();
+        searchIndex.rebuild().block();
     }
 
     @Nested
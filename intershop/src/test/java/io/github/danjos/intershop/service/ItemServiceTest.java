@@ -12,12 +12,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -30,9 +34,18 @@ class ItemServiceTest extends AbstractTestContainerTest {
    @Autowired
    private ReactiveRedisTemplate<String, Object> redisTemplate;
 
+   @Autowired
+   private ReactiveStringRedisTemplate stringRedisTemplate;
+
    @Autowired
    private ItemService itemService;
 
+   @Autowired
+   private ItemSearchIndex searchIndex;
+
+   @Autowired
+   private ItemCountCache countCache;
+
    private Item laptop;
    private Item smartphone;
    private List<Item> items;
@@ -58,6 +71,8 @@ class ItemServiceTest extends AbstractTestContainerTest {
        laptop = itemRepository.save(laptop).block();
        smartphone = itemRepository.save(smartphone).block();
        items = Arrays.asList(laptop, smartphone);
+       // Items were written straight to the database, so re-read them into the search index
+       searchIndex.rebuild().block();
    }
 
    @Nested
@@ -171,4 +186,189 @@ class ItemServiceTest extends AbstractTestContainerTest {
            assertThat(redisTemplate.hasKey(cacheKey).block()).isTrue();
        }
    }
-}
\ No newline at end of file
+
+   @Nested
+   @DisplayName("Get Items By IDs Tests")
+   class GetItemByIdsTests {
+
+       @Test
+       @DisplayName("Should return items in request order and cache them")
+       void getItemByIds_ShouldReturnItemsInRequestOrderAndCacheThem() {
+           redisTemplate.delete("item:" + laptop.getId(), "item:" + smartphone.getId()).block();
+           Set<Long> ids = new LinkedHashSet<>(List.of(smartphone.getId(), laptop.getId()));
+
+           StepVerifier.create(itemService.getItemByIds(ids).map(Item::getId).collectList())
+                   .assertNext(result -> assertThat(result).containsExactly(smartphone.getId(), laptop.getId()))
+                   .verifyComplete();
+
+           assertThat(redisTemplate.hasKey("item:" + laptop.getId()).block()).isTrue();
+           assertThat(redisTemplate.hasKey("item:" + smartphone.getId()).block()).isTrue();
+           assertThat(redisTemplate.getExpire("item:" + laptop.getId()).block()).isPositive();
+       }
+
+       @Test
+       @DisplayName("Should combine cached and missing items and skip unknown ids")
+       void getItemByIds_WithPartialCache_ShouldCombineHitsAndMisses() {
+           redisTemplate.delete("item:" + smartphone.getId()).block();
+           itemService.getItemById(laptop.getId()).block();
+           Set<Long> ids = new LinkedHashSet<>(List.of(laptop.getId(), 999L, smartphone.getId()));
+
+           StepVerifier.create(itemService.getItemByIds(ids).map(Item::getTitle).collectList())
+                   .assertNext(result -> assertThat(result).containsExactly("Laptop", "Smartphone"))
+                   .verifyComplete();
+       }
+   }
+
+   @Nested
+   @DisplayName("Near Cache Tests")
+   class NearCacheTests {
+
+       @Test
+       @DisplayName("Should serve hot item from local cache without Redis")
+       void getItemById_AfterFirstLoad_ShouldServeFromLocalCache() {
+           itemService.getItemById(laptop.getId()).block();
+           redisTemplate.delete("item:" + laptop.getId()).block();
+
+           StepVerifier.create(itemService.getItemById(laptop.getId()))
+                   .assertNext(item -> assertThat(item.getTitle()).isEqualTo("Laptop"))
+                   .verifyComplete();
+
+           assertThat(redisTemplate.hasKey("item:" + laptop.getId()).block()).isFalse();
+       }
+
+       @Test
+       @DisplayName("Should drop local and Redis entries when item cache is cleared")
+       void clearItemCache_ShouldEvictBothTiers() {
+           itemService.getItemById(laptop.getId()).block();
+
+           StepVerifier.create(itemService.clearItemCache(laptop.getId()))
+                   .verifyComplete();
+
+           assertThat(redisTemplate.hasKey("item:" + laptop.getId()).block()).isFalse();
+
+           // Next read goes back to the database and refills Redis
+           itemService.getItemById(laptop.getId()).block();
+           assertThat(redisTemplate.hasKey("item:" + laptop.getId()).block()).isTrue();
+       }
+   }
+
+   @Nested
+   @DisplayName("Search Cache Tag Tests")
+   class SearchCacheTagTests {
+
+       @Test
+       @DisplayName("Should evict only search pages that contain the cleared item")
+       void clearItemCache_ShouldEvictOnlyTaggedSearchPages() {
+           itemService.clearSearchCache().block();
+           itemService.searchItems("laptop", 1, 10, null).block();
+           itemService.searchItems("smartphone", 1, 10, null).block();
+
+           String laptopPage = "search:laptop:1:10:DEFAULT";
+           String smartphonePage = "search:smartphone:1:10:DEFAULT";
+           assertThat(redisTemplate.hasKey(laptopPage).block()).isTrue();
+           assertThat(stringRedisTemplate.opsForSet().isMember("search-tag:item:" + laptop.getId(), laptopPage).block()).isTrue();
+
+           itemService.clearItemCache(laptop.getId()).block();
+
+           assertThat(redisTemplate.hasKey(laptopPage).block()).isFalse();
+           assertThat(redisTemplate.hasKey("search-tag:item:" + laptop.getId()).block()).isFalse();
+           assertThat(redisTemplate.hasKey(smartphonePage).block()).isTrue();
+       }
+
+       @Test
+       @DisplayName("Should evict every listing page on an item change")
+       void clearItemCache_ShouldEvictListingPages() {
+           itemService.clearSearchCache().block();
+           // Page 1 of the price listing holds only the smartphone, but a new laptop price could move the laptop there
+           itemService.searchItems(null, 1, 1, "PRICE").block();
+           itemService.searchItems(null, 2, 1, "PRICE").block();
+           itemService.searchItems("smartphone", 1, 10, null).block();
+
+           itemService.clearItemCache(laptop.getId()).block();
+
+           assertThat(redisTemplate.hasKey("search:NO:1:1:PRICE").block()).isFalse();
+           assertThat(redisTemplate.hasKey("search:NO:2:1:PRICE").block()).isFalse();
+           assertThat(redisTemplate.hasKey("search:smartphone:1:10:DEFAULT").block()).isTrue();
+       }
+
+       @Test
+       @DisplayName("Should keep query pages shorter than listing pages")
+       void searchItems_ShouldExpireQueryPagesSooner() {
+           itemService.clearSearchCache().block();
+           itemService.searchItems(null, 1, 10, "ALPHA").block();
+           itemService.searchItems("laptop", 1, 10, null).block();
+
+           assertThat(redisTemplate.getExpire("search:laptop:1:10:DEFAULT").block()).isLessThanOrEqualTo(Duration.ofMinutes(5));
+           assertThat(redisTemplate.getExpire("search:NO:1:10:ALPHA").block()).isGreaterThan(Duration.ofMinutes(5));
+       }
+   }
+
+   @Nested
+   @DisplayName("Pagination Count Tests")
+   class PaginationCountTests {
+
+       @Test
+       @DisplayName("Should derive hasNext from an extra row and take the total from the count cache")
+       void performSearch_WithNextPage_ShouldUseCachedCount() {
+           countCache.invalidateAll();
+
+           StepVerifier.create(itemService.performSearch(null, 1, 1, null))
+                   .assertNext(page -> {
+                       assertThat(page.getContent()).extracting(Item::getId).containsExactly(laptop.getId());
+                       assertThat(page.hasNext()).isTrue();
+                       assertThat(page.getTotalElements()).isEqualTo(2L);
+                   })
+                   .verifyComplete();
+       }
+
+       @Test
+       @DisplayName("Should compute the total of the last page from its offset")
+       void performSearch_OnLastPage_ShouldNotNeedCount() {
+           // Leave a stale count of 3 in the cache; the last page must not depend on it
+           Item removed = new Item();
+           removed.setTitle("Removed");
+           removed.setPrice(1.0);
+           removed = itemRepository.save(removed).block();
+           countCache.invalidateAll();
+           assertThat(countCache.catalogSize().block()).isEqualTo(3L);
+           itemRepository.deleteById(removed.getId()).block();
+
+           StepVerifier.create(itemService.performSearch(null, 2, 1, "PRICE"))
+                   .assertNext(page -> {
+                       assertThat(page.getContent()).extracting(Item::getId).containsExactly(laptop.getId());
+                       assertThat(page.hasNext()).isFalse();
+                       assertThat(page.getTotalElements()).isEqualTo(2L);
+                   })
+                   .verifyComplete();
+       }
+   }
+
+   @Nested
+   @DisplayName("Search Index Tests")
+   class SearchIndexTests {
+
+       @Test
+       @DisplayName("Should resolve search results through the index by word prefix")
+       void performSearch_ShouldUseIndexByPrefix() {
+           StepVerifier.create(itemService.performSearch("PERFORM lap", 1, 10, null))
+                   .assertNext(page -> {
+                       assertThat(page.getContent()).extracting(Item::getId).containsExactly(laptop.getId());
+                       assertThat(page.getTotalElements()).isEqualTo(1L);
+                   })
+                   .verifyComplete();
+       }
+
+       @Test
+       @DisplayName("Should reindex an item when its cache entry is cleared")
+       void clearItemCache_ShouldReindexChangedItem() {
+           laptop.setTitle("Notebook");
+           laptop.setDescription("Ultralight notebook");
+           itemRepository.save(laptop).block();
+
+           itemService.clearItemCache(laptop.getId()).block();
+
+           assertThat(searchIndex.search("laptop")).isEmpty();
+           assertThat(searchIndex.search("note")).containsExactly(laptop.getId());
+       }
+   }
+}
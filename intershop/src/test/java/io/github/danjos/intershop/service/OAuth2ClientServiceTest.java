@@ -0,0 +1,148 @@
+package io.github.danjos.intershop.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("OAuth2ClientService Tests")
+class OAuth2ClientServiceTest {
+
+   // Stub Keycloak token endpoint and payment API on one local server
+   private DisposableServer server;
+   private final AtomicInteger tokenRequests = new AtomicInteger();
+   private final Set<String> revokedTokens = ConcurrentHashMap.newKeySet();
+   private volatile int expiresInSeconds = 300;
+   private volatile Duration tokenDelay = Duration.ZERO;
+
+   @BeforeEach
+   void setUp() {
+       server = HttpServer.create()
+               .port(0)
+               .route(routes -> routes
+                       .post("/realms/intershop/protocol/openid-connect/token", (request, response) -> {
+                           String token = "token-" + tokenRequests.incrementAndGet();
+                           return response.header("Content-Type", "application/json")
+                                   .sendString(Mono.delay(tokenDelay).thenReturn(
+                                           "{\"access_token\":\"" + token + "\",\"token_type\":\"Bearer\",\"expires_in\":" + expiresInSeconds + "}"));
+                       })
+                       .get("/api/balance", (request, response) -> {
+                           String token = request.requestHeaders().get("Authorization", "").replace("Bearer ", "");
+                           if (revokedTokens.contains(token)) {
+                               return response.status(401).send();
+                           }
+                           return response.header("Content-Type", "text/plain").sendString(Mono.just(token));
+                       }))
+               .bindNow();
+   }
+
+   @AfterEach
+   void tearDown() {
+       server.disposeNow();
+   }
+
+   private OAuth2ClientService service(Duration refreshBeforeExpiry) {
+       String baseUrl = "http://localhost:" + server.port();
+       return new OAuth2ClientService(WebClient.builder(), baseUrl + "/realms/intershop", "intershop-app", "secret",
+               "payment:read", baseUrl, refreshBeforeExpiry);
+   }
+
+   @Nested
+   @DisplayName("Token Cache Tests")
+   class TokenCacheTests {
+
+       @Test
+       @DisplayName("Should request the token once for many calls within its lifetime")
+       void executeWithToken_ManyCalls_ShouldRequestTokenOnce() {
+           OAuth2ClientService oauth2ClientService = service(Duration.ofSeconds(30));
+
+           for (int call = 0; call < 20; call++) {
+               StepVerifier.create(oauth2ClientService.executeWithToken("/api/balance", String.class))
+                       .expectNext("token-1")
+                       .verifyComplete();
+           }
+
+           assertThat(tokenRequests).hasValue(1);
+       }
+
+       @Test
+       @DisplayName("Should share one token request between concurrent first callers")
+       void getAccessToken_Concurrently_ShouldRequestTokenOnce() {
+           tokenDelay = Duration.ofMillis(200);
+           OAuth2ClientService oauth2ClientService = service(Duration.ofSeconds(30));
+
+           List<String> tokens = Flux.range(0, 50)
+                   .flatMap(i -> oauth2ClientService.getAccessToken())
+                   .collectList()
+                   .block(Duration.ofSeconds(5));
+
+           assertThat(tokens).hasSize(50).containsOnly("token-1");
+           assertThat(tokenRequests).hasValue(1);
+       }
+
+       @Test
+       @DisplayName("Should serve the current token while refreshing it ahead of expiry")
+       void getAccessToken_NearExpiry_ShouldRefreshInBackground() throws InterruptedException {
+           expiresInSeconds = 2;
+           // Refresh after half of the lifetime: 1 second
+           OAuth2ClientService oauth2ClientService = service(Duration.ofSeconds(30));
+           assertThat(oauth2ClientService.getAccessToken().block()).isEqualTo("token-1");
+
+           Thread.sleep(1_200);
+           assertThat(oauth2ClientService.getAccessToken().block()).isEqualTo("token-1");
+
+           long deadline = System.currentTimeMillis() + 5_000;
+           while (tokenRequests.get() < 2 && System.currentTimeMillis() < deadline) {
+               Thread.sleep(10);
+           }
+           Thread.sleep(100);
+           assertThat(oauth2ClientService.getAccessToken().block()).isEqualTo("token-2");
+           assertThat(tokenRequests).hasValue(2);
+       }
+   }
+
+   @Nested
+   @DisplayName("Unauthorized Retry Tests")
+   class UnauthorizedRetryTests {
+
+       @Test
+       @DisplayName("Should retry once with a new token after a 401")
+       void executeWithToken_WhenTokenRevoked_ShouldRetryWithNewToken() {
+           OAuth2ClientService oauth2ClientService = service(Duration.ofSeconds(30));
+           assertThat(oauth2ClientService.getAccessToken().block()).isEqualTo("token-1");
+           revokedTokens.add("token-1");
+
+           StepVerifier.create(oauth2ClientService.executeWithToken("/api/balance", String.class))
+                   .expectNext("token-2")
+                   .verifyComplete();
+           assertThat(tokenRequests).hasValue(2);
+       }
+
+       @Test
+       @DisplayName("Should give up after the retry is rejected too")
+       void executeWithToken_WhenEveryTokenRejected_ShouldFail() {
+           revokedTokens.addAll(List.of("token-1", "token-2", "token-3"));
+           OAuth2ClientService oauth2ClientService = service(Duration.ofSeconds(30));
+
+           StepVerifier.create(oauth2ClientService.executeWithToken("/api/balance", String.class))
+                   .expectErrorSatisfies(e -> assertThat(e).hasMessageContaining("401"))
+                   .verify(Duration.ofSeconds(5));
+           assertThat(tokenRequests).hasValue(2);
+       }
+   }
+}
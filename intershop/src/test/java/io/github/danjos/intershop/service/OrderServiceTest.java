@@ -23,6 +23,8 @@ import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -87,10 +89,10 @@ class OrderServiceTest {
                savedOrder.setId(1L);
                return Mono.just(savedOrder);
            });
-           when(orderItemRepository.save(any(OrderItem.class))).thenAnswer(invocation -> {
-               OrderItem savedOrderItem = invocation.getArgument(0);
-               savedOrderItem.setId(1L);
-               return Mono.just(savedOrderItem);
+           when(orderItemRepository.insertAll(anyList())).thenAnswer(invocation -> {
+               List<OrderItem> savedOrderItems = invocation.getArgument(0);
+               savedOrderItems.forEach(savedOrderItem -> savedOrderItem.setId(1L));
+               return Flux.fromIterable(savedOrderItems);
            });
 
            Mono<Order> resultMono = orderService.createOrderFromCart(cartItems, user);
@@ -119,7 +121,9 @@ class OrderServiceTest {
 
            verify(itemService).getItemByIds(any());
            verify(orderRepository).save(any(Order.class));
-           verify(orderItemRepository, times(2)).save(any(OrderItem.class));
+           // All lines in one batched insert
+           verify(orderItemRepository, times(1)).insertAll(argThat(lines -> lines.size() == 2));
+           verify(orderItemRepository, never()).save(any(OrderItem.class));
        }
 
        @Test
@@ -139,6 +143,7 @@ class OrderServiceTest {
                    .verifyComplete();
 
            verify(orderRepository).save(any(Order.class));
+           verify(orderItemRepository, never()).insertAll(anyList());
        }
 
        @Test
@@ -150,10 +155,10 @@ class OrderServiceTest {
                savedOrder.setId(1L);
                return Mono.just(savedOrder);
            });
-           when(orderItemRepository.save(any(OrderItem.class))).thenAnswer(invocation -> {
-               OrderItem savedOrderItem = invocation.getArgument(0);
-               savedOrderItem.setId(1L);
-               return Mono.just(savedOrderItem);
+           when(orderItemRepository.insertAll(anyList())).thenAnswer(invocation -> {
+               List<OrderItem> savedOrderItems = invocation.getArgument(0);
+               savedOrderItems.forEach(savedOrderItem -> savedOrderItem.setId(1L));
+               return Flux.fromIterable(savedOrderItems);
            });
 
            Mono<Order> resultMono = orderService.createOrderFromCart(cartItems, user);
@@ -175,10 +180,10 @@ class OrderServiceTest {
                savedOrder.setId(1L);
                return Mono.just(savedOrder);
            });
-           when(orderItemRepository.save(any(OrderItem.class))).thenAnswer(invocation -> {
-               OrderItem savedOrderItem = invocation.getArgument(0);
-               savedOrderItem.setId(1L);
-               return Mono.just(savedOrderItem);
+           when(orderItemRepository.insertAll(anyList())).thenAnswer(invocation -> {
+               List<OrderItem> savedOrderItems = invocation.getArgument(0);
+               savedOrderItems.forEach(savedOrderItem -> savedOrderItem.setId(1L));
+               return Flux.fromIterable(savedOrderItems);
            });
 
            Mono<Order> resultMono = orderService.createOrderFromCart(cartItems, user);
@@ -201,8 +206,8 @@ class OrderServiceTest {
        @DisplayName("Should return orders for valid user")
        void getUserOrders_WithValidUser_ShouldReturnOrders() {
            Flux<Order> expectedOrders = Flux.just(order);
-           when(orderRepository.findByUserId(user.getId())).thenReturn(expectedOrders);
-           when(orderItemRepository.findByOrderId(order.getId())).thenReturn(Flux.empty());
+           when(orderRepository.findByUserIdAndStatusNot(user.getId(), Order.PENDING)).thenReturn(expectedOrders);
+           when(orderItemRepository.findByOrderIdIn(List.of(order.getId()))).thenReturn(Flux.empty());
            when(itemService.getItemByIds(any())).thenReturn(Flux.empty());
 
            Flux<Order> resultFlux = orderService.getUserOrders(user);
@@ -215,27 +220,63 @@ class OrderServiceTest {
                    })
                    .verifyComplete();
 
-           verify(orderRepository).findByUserId(user.getId());
-           verify(orderItemRepository).findByOrderId(order.getId());
+           verify(orderRepository).findByUserIdAndStatusNot(user.getId(), Order.PENDING);
+           verify(orderItemRepository).findByOrderIdIn(List.of(order.getId()));
+       }
+
+       @Test
+       @DisplayName("Should load lines and items of all orders in batches, not per order")
+       void getUserOrders_WithManyOrders_ShouldBatchQueries() {
+           List<Order> history = new ArrayList<>();
+           List<OrderItem> lines = new ArrayList<>();
+           for (long id = 1; id <= 600; id++) {
+               Order pastOrder = new Order();
+               pastOrder.setId(id);
+               pastOrder.setUserId(user.getId());
+               history.add(pastOrder);
+               lines.add(orderItem(id, id % 2 == 0 ? laptop.getId() : smartphone.getId(), (int) (id % 3) + 1));
+           }
+           when(orderRepository.findByUserIdAndStatusNot(user.getId(), Order.PENDING)).thenReturn(Flux.fromIterable(history));
+           when(orderItemRepository.findByOrderIdIn(anyList())).thenAnswer(invocation -> {
+               Collection<Long> orderIds = invocation.getArgument(0);
+               return Flux.fromIterable(lines).filter(line -> orderIds.contains(line.getOrderId()));
+           });
+           when(itemService.getItemByIds(any())).thenReturn(Flux.just(laptop, smartphone));
+
+           StepVerifier.create(orderService.getUserOrders(user).collectList())
+                   .assertNext(result -> {
+                       assertThat(result).extracting(Order::getId).containsExactlyElementsOf(
+                               history.stream().map(Order::getId).toList());
+                       assertThat(result).allSatisfy(pastOrder -> assertThat(pastOrder.getItems()).hasSize(1));
+                       assertThat(result.get(0).getItems().get(0).getItem()).isEqualTo(smartphone);
+                       assertThat(result.get(1).getItems().get(0).getItem()).isEqualTo(laptop);
+                       assertThat(result.get(1).getItems().get(0).getOrder()).isSameAs(result.get(1));
+                   })
+                   .verifyComplete();
+
+           // 600 orders: two IN queries of at most 500 ids and one item lookup
+           verify(orderItemRepository, times(2)).findByOrderIdIn(anyList());
+           verify(orderItemRepository, never()).findByOrderId(any());
+           verify(itemService, times(1)).getItemByIds(any());
        }
 
        @Test
        @DisplayName("Should return empty flux when user has no orders")
        void getUserOrders_WithNoOrders_ShouldReturnEmptyFlux() {
-           when(orderRepository.findByUserId(user.getId())).thenReturn(Flux.empty());
+           when(orderRepository.findByUserIdAndStatusNot(user.getId(), Order.PENDING)).thenReturn(Flux.empty());
 
            Flux<Order> resultFlux = orderService.getUserOrders(user);
 
            StepVerifier.create(resultFlux)
                    .verifyComplete();
 
-           verify(orderRepository).findByUserId(user.getId());
+           verify(orderRepository).findByUserIdAndStatusNot(user.getId(), Order.PENDING);
        }
 
        @Test
        @DisplayName("Should handle repository errors")
        void getUserOrders_WithRepositoryError_ShouldPropagateError() {
-           when(orderRepository.findByUserId(user.getId())).thenReturn(Flux.error(new RuntimeException("Repository error")));
+           when(orderRepository.findByUserIdAndStatusNot(user.getId(), Order.PENDING)).thenReturn(Flux.error(new RuntimeException("Repository error")));
 
            Flux<Order> resultFlux = orderService.getUserOrders(user);
 
@@ -299,4 +340,12 @@ class OrderServiceTest {
                    .verify();
        }
    }
-} 
\ No newline at end of file
+
+   private static OrderItem orderItem(Long orderId, Long itemId, int quantity) {
+       OrderItem orderItem = new OrderItem();
+       orderItem.setOrderId(orderId);
+       orderItem.setItemId(itemId);
+       orderItem.setQuantity(quantity);
+       return orderItem;
+   }
+}
@@ -0,0 +1,123 @@
+package io.github.danjos.intershop.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PasswordHasher Tests")
+class PasswordHasherTest {
+
+   private PasswordHasher passwordHasher;
+
+   @AfterEach
+   void tearDown() {
+       if (passwordHasher != null) {
+           passwordHasher.shutdown();
+       }
+   }
+
+   @Nested
+   @DisplayName("Hashing Tests")
+   class HashingTests {
+
+       @Test
+       @DisplayName("Should hash and verify on the hashing pool, not the caller thread")
+       void encodeAndMatches_ShouldRunOnHashingPool() {
+           passwordHasher = new PasswordHasher(new BCryptPasswordEncoder(4), 2, 10);
+           String caller = Thread.currentThread().getName();
+
+           String hash = passwordHasher.encode("secret")
+                   .doOnNext(h -> assertThat(Thread.currentThread().getName())
+                           .startsWith("password-hashing")
+                           .isNotEqualTo(caller))
+                   .block();
+
+           StepVerifier.create(passwordHasher.matches("secret", hash)).expectNext(true).verifyComplete();
+           StepVerifier.create(passwordHasher.matches("wrong", hash)).expectNext(false).verifyComplete();
+
+           PasswordHasher.Stats stats = passwordHasher.stats();
+           assertThat(stats.getCompleted()).isEqualTo(3);
+           assertThat(stats.getActive()).isZero();
+           assertThat(stats.getRejected()).isZero();
+       }
+
+       @Test
+       @DisplayName("Should report hashes made with a lower cost for upgrade")
+       void upgradeEncoding_WithWeakerHash_ShouldBeTrue() {
+           passwordHasher = new PasswordHasher(new BCryptPasswordEncoder(6), 1, 10);
+           String weak = new BCryptPasswordEncoder(4).encode("secret");
+
+           assertThat(passwordHasher.upgradeEncoding(weak)).isTrue();
+           assertThat(passwordHasher.upgradeEncoding(passwordHasher.encode("secret").block())).isFalse();
+       }
+   }
+
+   @Nested
+   @DisplayName("Back-Pressure Tests")
+   class BackPressureTests {
+
+       @Test
+       @DisplayName("Should reject hashes beyond the pool and its queue instead of waiting")
+       void encode_WhenQueueIsFull_ShouldRejectFast() throws InterruptedException {
+           CountDownLatch release = new CountDownLatch(1);
+           passwordHasher = new PasswordHasher(blockingEncoder(release), 1, 1);
+
+           // One hash runs, one waits in the queue, the rest are turned away
+           List<Throwable> errors = new CopyOnWriteArrayList<>();
+           passwordHasher.encode("secret").subscribe(hash -> { }, errors::add);
+           assertThat(await(() -> passwordHasher.stats().getActive() == 1)).isTrue();
+           for (int login = 0; login < 4; login++) {
+               passwordHasher.encode("secret").subscribe(hash -> { }, errors::add);
+           }
+
+           assertThat(errors).hasSize(3).allMatch(RejectedExecutionException.class::isInstance);
+           assertThat(passwordHasher.stats().getRejected()).isEqualTo(3);
+
+           release.countDown();
+           assertThat(await(() -> passwordHasher.stats().getCompleted() == 2)).isTrue();
+       }
+
+       private boolean await(BooleanSupplier condition) throws InterruptedException {
+           long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+           while (!condition.getAsBoolean()) {
+               if (System.nanoTime() > deadline) {
+                   return false;
+               }
+               Thread.sleep(10);
+           }
+           return true;
+       }
+
+       private PasswordEncoder blockingEncoder(CountDownLatch release) {
+           return new PasswordEncoder() {
+               @Override
+               public String encode(CharSequence rawPassword) {
+                   try {
+                       release.await(5, TimeUnit.SECONDS);
+                   } catch (InterruptedException e) {
+                       Thread.currentThread().interrupt();
+                   }
+                   return "hashed:" + rawPassword;
+               }
+
+               @Override
+               public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                   return encodedPassword.equals(encode(rawPassword));
+               }
+           };
+       }
+   }
+}
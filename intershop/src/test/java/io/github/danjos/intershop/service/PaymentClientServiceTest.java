@@ -0,0 +1,129 @@
+package io.github.danjos.intershop.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PaymentClientService Tests")
+class PaymentClientServiceTest {
+
+   // Stub Keycloak token endpoint and payment API on one local server
+   private DisposableServer server;
+   private final List<String> balanceQueries = new CopyOnWriteArrayList<>();
+   private final List<String> paymentBodies = new CopyOnWriteArrayList<>();
+   private volatile int paymentStatus = 200;
+
+   private PaymentClientService paymentClientService;
+
+   @BeforeEach
+   void setUp() {
+       server = HttpServer.create()
+               .port(0)
+               .route(routes -> routes
+                       .post("/realms/intershop/protocol/openid-connect/token", (request, response) ->
+                               response.header("Content-Type", "application/json")
+                                       .sendString(Mono.just("{\"access_token\":\"token\",\"token_type\":\"Bearer\",\"expires_in\":300}")))
+                       .get("/api/payment/balance", (request, response) -> {
+                           balanceQueries.add(request.uri());
+                           return response.header("Content-Type", "application/json")
+                                   .sendString(Mono.just("{\"balance\":850.5,\"currency\":\"RUB\"}"));
+                       })
+                       .post("/api/payment/process", (request, response) -> request.receive().aggregate().asString()
+                               .flatMap(body -> {
+                                   paymentBodies.add(body);
+                                   if (paymentStatus != 200) {
+                                       return response.status(paymentStatus).send().then();
+                                   }
+                                   return response.header("Content-Type", "application/json")
+                                           .sendString(Mono.just("{\"success\":true,\"transactionId\":\"txn-1\",\"newBalance\":800.03}"))
+                                           .then();
+                               })))
+               .bindNow();
+
+       String baseUrl = "http://localhost:" + server.port();
+       OAuth2ClientService oauth2ClientService = new OAuth2ClientService(WebClient.builder(),
+               baseUrl + "/realms/intershop", "intershop-app", "secret", "payment:read payment:write",
+               baseUrl, Duration.ofSeconds(30));
+       paymentClientService = new PaymentClientService(oauth2ClientService);
+   }
+
+   @AfterEach
+   void tearDown() {
+       server.disposeNow();
+   }
+
+   @Nested
+   @DisplayName("Balance Tests")
+   class BalanceTests {
+
+       @Test
+       @DisplayName("Should read the balance of the shop user from the payment service")
+       void getBalanceForUser_ShouldAskForTheUsersAccount() {
+           StepVerifier.create(paymentClientService.getBalanceForUser("user 1"))
+                   .expectNext(850.5)
+                   .verifyComplete();
+
+           assertThat(balanceQueries).containsExactly("/api/payment/balance?username=user%201");
+       }
+   }
+
+   @Nested
+   @DisplayName("Debit Tests")
+   class DebitTests {
+
+       @Test
+       @DisplayName("Should debit the shop user's account for the order and return the new balance")
+       void debitBalance_ShouldReturnNewBalance() {
+           StepVerifier.create(paymentClientService.debitBalance("user1", new BigDecimal("199.97"), "order-7"))
+                   .assertNext(balance -> assertThat(balance).isEqualByComparingTo("800.03"))
+                   .verifyComplete();
+
+           assertThat(paymentBodies).singleElement().satisfies(body -> assertThat(body)
+                   .contains("\"username\":\"user1\"", "\"amount\":199.97", "\"orderId\":\"order-7\""));
+       }
+
+       @Test
+       @DisplayName("Should complete empty when the payment service declines for insufficient funds")
+       void debitBalance_WhenDeclined_ShouldCompleteEmpty() {
+           paymentStatus = 402;
+
+           StepVerifier.create(paymentClientService.debitBalance("user1", new BigDecimal("5000.00"), "order-8"))
+                   .verifyComplete();
+       }
+
+       @Test
+       @DisplayName("Should not take an invalid request for insufficient funds")
+       void debitBalance_WhenRequestIsRejected_ShouldError() {
+           paymentStatus = 400;
+
+           StepVerifier.create(paymentClientService.debitBalance("user1", new BigDecimal("10.00"), "order-10"))
+                   .expectError(WebClientResponseException.BadRequest.class)
+                   .verify();
+       }
+
+       @Test
+       @DisplayName("Should pass other failures on, so the order stays pending")
+       void debitBalance_WhenPaymentServiceFails_ShouldError() {
+           paymentStatus = 500;
+
+           StepVerifier.create(paymentClientService.debitBalance("user1", new BigDecimal("10.00"), "order-9"))
+                   .expectError(WebClientResponseException.InternalServerError.class)
+                   .verify();
+       }
+   }
+}
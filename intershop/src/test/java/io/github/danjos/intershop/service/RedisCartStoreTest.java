@@ -0,0 +1,75 @@
+package io.github.danjos.intershop.service;
+
+import io.github.danjos.intershop.AbstractTestContainerTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("RedisCartStore Tests")
+class RedisCartStoreTest extends AbstractTestContainerTest {
+
+   private static final Long USER_ID = 7L;
+
+   @Autowired
+   private ReactiveStringRedisTemplate redisTemplate;
+
+   private RedisCartStore cartStore;
+
+   @BeforeEach
+   void setUp() {
+       cartStore = new RedisCartStore(redisTemplate, Duration.ofHours(1));
+       cartStore.clear(USER_ID).block();
+   }
+
+   @Test
+   @DisplayName("Should count every concurrent increment")
+   void increment_Concurrently_ShouldCountEveryClick() {
+       Flux.range(0, 50)
+               .flatMap(i -> cartStore.increment(USER_ID, 10L))
+               .blockLast();
+       cartStore.increment(USER_ID, 20L).block();
+
+       StepVerifier.create(cartStore.quantities(USER_ID))
+               .assertNext(quantities -> assertThat(quantities).containsExactly(Map.entry(10L, 50), Map.entry(20L, 1)))
+               .verifyComplete();
+       assertThat(redisTemplate.getExpire(RedisCartStore.CART_KEY_PREFIX + USER_ID).block()).isPositive();
+   }
+
+   @Test
+   @DisplayName("Should drop the line with its last unit and ignore missing lines")
+   void decrement_ShouldDeleteLastUnit() {
+       cartStore.increment(USER_ID, 10L).block();
+       cartStore.increment(USER_ID, 10L).block();
+       cartStore.increment(USER_ID, 20L).block();
+
+       cartStore.decrement(USER_ID, 10L).block();
+       cartStore.decrement(USER_ID, 20L).block();
+       cartStore.decrement(USER_ID, 30L).block();
+
+       StepVerifier.create(cartStore.quantities(USER_ID))
+               .assertNext(quantities -> assertThat(quantities).containsExactly(Map.entry(10L, 1)))
+               .verifyComplete();
+   }
+
+   @Test
+   @DisplayName("Should remove a line and clear the cart")
+   void removeAndClear_ShouldEmptyCart() {
+       cartStore.increment(USER_ID, 10L).block();
+       cartStore.increment(USER_ID, 20L).block();
+
+       cartStore.remove(USER_ID, 10L).block();
+       assertThat(cartStore.quantities(USER_ID).block()).containsOnlyKeys(20L);
+
+       cartStore.clear(USER_ID).block();
+       assertThat(cartStore.quantities(USER_ID).block()).isEmpty();
+   }
+}
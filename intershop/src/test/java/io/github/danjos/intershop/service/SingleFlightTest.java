@@ -0,0 +1,79 @@
+package io.github.danjos.intershop.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("SingleFlight Tests")
+class SingleFlightTest {
+
+   private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+   private final AtomicInteger loads = new AtomicInteger();
+
+   @Test
+   @DisplayName("Should share one load between concurrent callers of the same key")
+   void execute_ConcurrentCallers_ShouldShareOneLoad() {
+       Sinks.One<String> result = Sinks.one();
+       Supplier<Mono<String>> loader = countingLoader(result.asMono());
+       List<String> received = new CopyOnWriteArrayList<>();
+
+       singleFlight.execute("search:a", loader).subscribe(received::add);
+       singleFlight.execute("search:a", loader).subscribe(received::add);
+       singleFlight.execute("search:b", countingLoader(Mono.never())).subscribe();
+
+       assertThat(loads.get()).isEqualTo(2);
+       assertThat(singleFlight.inFlightCount()).isEqualTo(2);
+
+       result.tryEmitValue("page");
+
+       assertThat(received).containsExactly("page", "page");
+       assertThat(singleFlight.inFlightCount()).isEqualTo(1);
+   }
+
+   @Test
+   @DisplayName("Should start a fresh load once the previous one completed")
+   void execute_AfterCompletion_ShouldLoadAgain() {
+       StepVerifier.create(singleFlight.execute("item:1", countingLoader(Mono.just("v1"))))
+               .expectNext("v1")
+               .verifyComplete();
+       StepVerifier.create(singleFlight.execute("item:1", countingLoader(Mono.just("v2"))))
+               .expectNext("v2")
+               .verifyComplete();
+
+       assertThat(loads.get()).isEqualTo(2);
+       assertThat(singleFlight.inFlightCount()).isZero();
+   }
+
+   @Test
+   @DisplayName("Should propagate errors to every waiter and release the key")
+   void execute_WithError_ShouldReleaseKey() {
+       Sinks.One<String> result = Sinks.one();
+       Mono<String> first = singleFlight.execute("item:1", countingLoader(result.asMono()));
+       Mono<String> second = singleFlight.execute("item:1", countingLoader(result.asMono()));
+       List<Throwable> errors = new CopyOnWriteArrayList<>();
+
+       first.subscribe(v -> { }, errors::add);
+       second.subscribe(v -> { }, errors::add);
+       result.tryEmitError(new IllegalStateException("db down"));
+
+       assertThat(errors).hasSize(2);
+       assertThat(loads.get()).isEqualTo(1);
+       assertThat(singleFlight.inFlightCount()).isZero();
+   }
+
+   private Supplier<Mono<String>> countingLoader(Mono<String> result) {
+       return () -> {
+           loads.incrementAndGet();
+           return result;
+       };
+   }
+}
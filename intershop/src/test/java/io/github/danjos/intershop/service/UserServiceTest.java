@@ -0,0 +1,134 @@
+package io.github.danjos.intershop.service;
+
+import io.github.danjos.intershop.model.User;
+import io.github.danjos.intershop.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserService Tests")
+class UserServiceTest {
+
+   @Mock
+   private UserRepository userRepository;
+
+   @Mock
+   private PasswordHasher passwordHasher;
+
+   private UserService userService;
+   private User user;
+
+   @BeforeEach
+   void setUp() {
+       userService = new UserService(userRepository, new UserIdCache(100, Duration.ofMinutes(1)), passwordHasher);
+       user = new User();
+       user.setId(42L);
+       user.setUsername("testuser");
+   }
+
+   @Nested
+   @DisplayName("User Id Resolution Tests")
+   class UserIdResolutionTests {
+
+       @Test
+       @DisplayName("Should query the database only for the first lookup")
+       void getUserIdByUsername_ShouldCacheId() {
+           when(userRepository.findByUsername("testuser")).thenReturn(Mono.just(user));
+
+           for (int request = 0; request < 5; request++) {
+               StepVerifier.create(userService.getUserIdByUsername("testuser"))
+                       .expectNext(42L)
+                       .verifyComplete();
+           }
+
+           verify(userRepository, times(1)).findByUsername("testuser");
+       }
+
+       @Test
+       @DisplayName("Should not cache unknown users")
+       void getUserIdByUsername_WithUnknownUser_ShouldNotCache() {
+           when(userRepository.findByUsername("ghost")).thenReturn(Mono.empty());
+
+           StepVerifier.create(userService.getUserIdByUsername("ghost")).verifyComplete();
+           StepVerifier.create(userService.getUserIdByUsername("ghost")).verifyComplete();
+
+           verify(userRepository, times(2)).findByUsername("ghost");
+       }
+
+       @Test
+       @DisplayName("Should keep the id in the session and read it from there")
+       void getUserIdByUsername_WithSession_ShouldStoreIdInSession() {
+           when(userRepository.findByUsername("testuser")).thenReturn(Mono.just(user));
+           MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/cart/items"));
+
+           StepVerifier.create(userService.getUserIdByUsername(exchange, "testuser"))
+                   .expectNext(42L)
+                   .verifyComplete();
+
+           assertThat(exchange.getSession().block().<Long>getAttribute("userId:testuser")).isEqualTo(42L);
+       }
+
+       @Test
+       @DisplayName("Should resolve from the session without touching the database")
+       void getUserIdByUsername_FromSession_ShouldSkipDatabase() {
+           MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/cart/items"));
+           exchange.getSession().block().getAttributes().put("userId:testuser", 42L);
+
+           StepVerifier.create(userService.getOrCreateUserIdByUsername(exchange, "testuser"))
+                   .expectNext(42L)
+                   .verifyComplete();
+
+           verify(userRepository, never()).findByUsername("testuser");
+       }
+   }
+
+   @Nested
+   @DisplayName("Password Hashing Tests")
+   class PasswordHashingTests {
+
+       @Test
+       @DisplayName("Should store the hash produced by the password hasher")
+       void createUser_ShouldSaveHashedPassword() {
+           when(passwordHasher.encode("secret")).thenReturn(Mono.just("hashed"));
+           when(userRepository.save(any(User.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+           StepVerifier.create(userService.createUser("newuser", "secret", "new@example.com"))
+                   .assertNext(created -> {
+                       assertThat(created.getUsername()).isEqualTo("newuser");
+                       assertThat(created.getPassword()).isEqualTo("hashed");
+                   })
+                   .verifyComplete();
+       }
+
+       @Test
+       @DisplayName("Should not save the user when hashing is rejected")
+       void createUser_WhenHashingRejected_ShouldNotSave() {
+           when(passwordHasher.encode("secret")).thenReturn(Mono.error(new RejectedExecutionException("full")));
+
+           StepVerifier.create(userService.createUser("newuser", "secret", "new@example.com"))
+                   .expectError(RejectedExecutionException.class)
+                   .verify();
+
+           verify(userRepository, never()).save(any(User.class));
+       }
+   }
+}
@@ -0,0 +1,60 @@
+package io.github.danjos.intershop.util;
+
+import io.github.danjos.intershop.model.Item;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PageCursor Tests")
+class PageCursorTest {
+
+    @Test
+    @DisplayName("Should encode the boundary row of the page and decode it back")
+    void next_ShouldRoundTrip() {
+        String encoded = PageCursor.next(PageCursor.MODE_TITLE, 3, List.of(item(1L, "A|b"), item(7L, "Tablet | 10\"")));
+
+        PageCursor cursor = PageCursor.decode(encoded);
+
+        assertThat(cursor).isNotNull();
+        assertThat(cursor.getMode()).isEqualTo(PageCursor.MODE_TITLE);
+        assertThat(cursor.isForward()).isTrue();
+        assertThat(cursor.getPageNumber()).isEqualTo(4);
+        assertThat(cursor.getId()).isEqualTo(7L);
+        assertThat(cursor.getKey()).isEqualTo("Tablet | 10\"");
+    }
+
+    @Test
+    @DisplayName("Should not offer a previous cursor on the first page")
+    void previous_OnFirstPage_ShouldBeNull() {
+        assertThat(PageCursor.previous(PageCursor.MODE_ID, 1, List.of(item(1L, "A")))).isNull();
+        assertThat(PageCursor.decode(PageCursor.previous(PageCursor.MODE_PRICE, 2, List.of(item(5L, "A"))))
+                .getKey()).isEqualTo("10.5");
+    }
+
+    @Test
+    @DisplayName("Should reject malformed cursors")
+    void decode_WithGarbage_ShouldReturnNull() {
+        assertThat(PageCursor.decode("not base64 at all!")).isNull();
+        assertThat(PageCursor.decode("MnxJRHxOfDJ8eHw")).isNull();
+        assertThat(PageCursor.decode(null)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should pick the seek mode from query and sort")
+    void modeFor_ShouldFollowQueryAndSort() {
+        assertThat(PageCursor.modeFor("lap", "PRICE")).isEqualTo(PageCursor.MODE_SEARCH);
+        assertThat(PageCursor.modeFor("", "ALPHA")).isEqualTo(PageCursor.MODE_TITLE);
+        assertThat(PageCursor.modeFor(null, "NO")).isEqualTo(PageCursor.MODE_ID);
+    }
+
+    private static Item item(Long id, String title) {
+        Item item = new Item();
+        item.setId(id);
+        item.setTitle(title);
+        item.setPrice(10.5);
+        return item;
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.danjos.payment.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * One pooled Reactor Netty client for all outbound HTTP calls.
+ * <p>
+ * Spring Boot applies the {@link ClientHttpConnector} bean to every injected
+ * {@code WebClient.Builder}, so services build their clients from that builder
+ * and share the connection pool: keep-alive connections are reused instead of
+ * opening a TCP connection per call. When all connections are busy, at most
+ * {@code pending-acquire-max-count} requests wait for one, each for at most
+ * {@code pending-acquire-timeout}.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider httpConnectionProvider(
+            @Value("${http.client.pool.max-connections:100}") int maxConnections,
+            @Value("${http.client.pool.pending-acquire-max-count:500}") int pendingAcquireMaxCount,
+            @Value("${http.client.pool.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+            @Value("${http.client.pool.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${http.client.pool.max-life-time:5m}") Duration maxLifeTime) {
+        return ConnectionProvider.builder("payment-http")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(maxIdleTime)
+                .build();
+    }
+
+    @Bean
+    public ClientHttpConnector clientHttpConnector(
+            ConnectionProvider httpConnectionProvider,
+            @Value("${http.client.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${http.client.response-timeout:5s}") Duration responseTimeout,
+            @Value("${http.client.compression:true}") boolean compression,
+            @Value("${http.client.http2:false}") boolean http2) {
+        HttpClient httpClient = HttpClient.create(httpConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(responseTimeout)
+                .compress(compression)
+                // h2c with upgrade from HTTP/1.1, for downstreams that speak it
+                .protocol(http2 ? new HttpProtocol[]{HttpProtocol.H2C, HttpProtocol.HTTP11} : new HttpProtocol[]{HttpProtocol.HTTP11});
+        return new ReactorClientHttpConnector(httpClient);
+    }
+}
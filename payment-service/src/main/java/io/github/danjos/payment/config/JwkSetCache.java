@@ -0,0 +1,138 @@
+package io.github.danjos.payment.config;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keycloak's signing keys, kept in memory for JWT verification.
+ * <p>
+ * The key set is reloaded in the background every {@code refresh-interval}.
+ * A token signed with a key that is not in the set (a key rotation) triggers
+ * an immediate reload, but at most once per {@code refetch-min-interval}, so a
+ * flood of tokens with an unknown {@code kid} cannot hammer the IdP. When a
+ * reload fails the last known keys stay in use.
+ */
+@Component
+@Slf4j
+public class JwkSetCache {
+
+    private final WebClient webClient;
+    private final String jwkSetUri;
+    private final Duration refreshInterval;
+    private final long refetchMinIntervalMillis;
+
+    private final AtomicReference<JWKSet> jwkSet = new AtomicReference<>(new JWKSet());
+    private final AtomicLong lastFetchStartedAt = new AtomicLong();
+    private final AtomicReference<Mono<JWKSet>> pendingFetch = new AtomicReference<>();
+    private Disposable refresher;
+
+    public JwkSetCache(
+            WebClient.Builder webClientBuilder,
+            @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri:http://localhost:8082/realms/intershop/protocol/openid-connect/certs}") String jwkSetUri,
+            @Value("${payment.jwk.refresh-interval:5m}") Duration refreshInterval,
+            @Value("${payment.jwk.refetch-min-interval:30s}") Duration refetchMinInterval) {
+        this.webClient = webClientBuilder.build();
+        this.jwkSetUri = jwkSetUri;
+        this.refreshInterval = refreshInterval;
+        this.refetchMinIntervalMillis = refetchMinInterval.toMillis();
+    }
+
+    @PostConstruct
+    void start() {
+        refresher = Flux.interval(Duration.ZERO, refreshInterval)
+                .concatMap(tick -> fetch())
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (refresher != null) {
+            refresher.dispose();
+        }
+    }
+
+    /**
+     * Keys matching the token's header; reloads the set once if none match.
+     */
+    public Flux<JWK> select(SignedJWT jwt) {
+        JWKSelector selector = new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader()));
+        List<JWK> keys = selector.select(jwkSet.get());
+        if (!keys.isEmpty()) {
+            return Flux.fromIterable(keys);
+        }
+        return refetch().flatMapIterable(selector::select);
+    }
+
+    private Mono<JWKSet> refetch() {
+        Mono<JWKSet> pending = pendingFetch.get();
+        if (pending != null) {
+            return pending;
+        }
+        long now = System.currentTimeMillis();
+        long last = lastFetchStartedAt.get();
+        if (now - last < refetchMinIntervalMillis) {
+            log.debug("Unknown signing key, but the key set was fetched {} ms ago", now - last);
+            return Mono.just(jwkSet.get());
+        }
+        return fetch();
+    }
+
+    /**
+     * Loads the key set, sharing a load that is already in flight.
+     */
+    Mono<JWKSet> fetch() {
+        Mono<JWKSet> pending = pendingFetch.get();
+        if (pending != null) {
+            return pending;
+        }
+        AtomicReference<Mono<JWKSet>> self = new AtomicReference<>();
+        Mono<JWKSet> load = Mono.defer(() -> {
+                    lastFetchStartedAt.set(System.currentTimeMillis());
+                    return webClient.get()
+                            .uri(jwkSetUri)
+                            .retrieve()
+                            .bodyToMono(String.class);
+                })
+                .<JWKSet>handle((body, sink) -> {
+                    try {
+                        sink.next(JWKSet.parse(body));
+                    } catch (ParseException e) {
+                        sink.error(e);
+                    }
+                })
+                .doOnNext(fresh -> {
+                    jwkSet.set(fresh);
+                    log.debug("Loaded {} signing keys from {}", fresh.getKeys().size(), jwkSetUri);
+                })
+                .onErrorResume(e -> {
+                    log.warn("Could not load signing keys from {}, keeping {} known keys: {}",
+                            jwkSetUri, jwkSet.get().getKeys().size(), e.getMessage());
+                    return Mono.just(jwkSet.get());
+                })
+                // Cleared before the keys reach the callers, so that a caller
+                // who still misses a key starts a new load instead of reusing this one
+                .doOnNext(loaded -> pendingFetch.compareAndSet(self.get(), null))
+                .doFinally(signal -> pendingFetch.compareAndSet(self.get(), null))
+                .cache();
+        self.set(load);
+        return pendingFetch.compareAndSet(null, load) ? load : fetch();
+    }
+}
@@ -1,5 +1,6 @@
 package io.github.danjos.payment.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
@@ -8,12 +9,14 @@ import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 
+import java.time.Duration;
+
 @Configuration
 @EnableWebFluxSecurity
 public class OAuth2ResourceServerConfig {
 
     @Bean
-    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, ReactiveJwtDecoder jwtDecoder) {
         return http
             .authorizeExchange(exchanges -> exchanges
                 .pathMatchers("/api/payment/**").authenticated()
@@ -21,17 +24,21 @@ public class OAuth2ResourceServerConfig {
             )
             .oauth2ResourceServer(oauth2 -> oauth2
                 .jwt(jwt -> jwt
-                    .jwtDecoder(jwtDecoder())
+                    .jwtDecoder(jwtDecoder)
                 )
             )
             .build();
     }
 
     @Bean
-    public ReactiveJwtDecoder jwtDecoder() {
-        // Keycloak JWT decoder
-        return NimbusReactiveJwtDecoder
-            .withJwkSetUri("http://localhost:8082/realms/intershop/protocol/openid-connect/certs")
+    public ReactiveJwtDecoder jwtDecoder(
+            JwkSetCache jwkSetCache,
+            @Value("${payment.jwt.cache.max-size:10000}") long maxSize,
+            @Value("${payment.jwt.cache.max-ttl:5m}") Duration maxTtl) {
+        // Keycloak JWT decoder: signing keys from the local key cache, verified tokens cached until exp
+        ReactiveJwtDecoder verifier = NimbusReactiveJwtDecoder
+            .withJwkSource(jwkSetCache::select)
             .build();
+        return new CachingJwtDecoder(verifier, maxSize, maxTtl);
     }
 }
@@ -3,43 +3,52 @@ package io.github.danjos.payment.controller;
 import io.github.danjos.payment.domain.BalanceResponse;
 import io.github.danjos.payment.domain.PaymentRequest;
 import io.github.danjos.payment.domain.PaymentResponse;
-import io.github.danjos.payment.service.UserBalanceService;
+import io.github.danjos.payment.service.AccountSequencer;
+import io.github.danjos.payment.service.LedgerService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
 import java.time.OffsetDateTime;
-import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/payment")
 @Slf4j
 public class PaymentController {
 
-    @Value("${payment.initial.balance:1000.00}")
-    private Double initialBalance;
-
     @Value("${payment.currency:RUB}")
     private String currency;
     
-    private final UserBalanceService userBalanceService;
+    private final LedgerService ledgerService;
+    private final AccountSequencer accountSequencer;
+    private final String trustedClientId;
 
-    public PaymentController(UserBalanceService userBalanceService) {
-        this.userBalanceService = userBalanceService;
+    public PaymentController(LedgerService ledgerService, AccountSequencer accountSequencer,
+                             @Value("${payment.trusted-client-id:intershop-app}") String trustedClientId) {
+        this.ledgerService = ledgerService;
+        this.accountSequencer = accountSequencer;
+        this.trustedClientId = trustedClientId;
     }
 
     @GetMapping("/balance")
     @PreAuthorize("hasAuthority('SCOPE_payment:read')")
-    public Mono<ResponseEntity<BalanceResponse>> getBalance(Authentication authentication) {
-        String username = getUsernameFromAuth(authentication);
+    public Mono<ResponseEntity<BalanceResponse>> getBalance(@RequestParam(required = false) String username,
+                                                            Authentication authentication) {
+        String account = getAccount(username, authentication);
         
-        return userBalanceService.getUserBalance(username)
+        return ledgerService.getBalance(account)
                 .map(balance -> {
-                    log.info("Getting balance for user {}: {}", username, balance);
+                    log.info("Getting balance for user {}: {}", account, balance);
                     
                     BalanceResponse response = new BalanceResponse()
                             .balance(balance.doubleValue())
@@ -53,43 +62,72 @@ public class PaymentController {
     @PostMapping("/process")
     @PreAuthorize("hasAuthority('SCOPE_payment:write')")
     public Mono<ResponseEntity<PaymentResponse>> processPayment(@RequestBody PaymentRequest request, Authentication authentication) {
-        String username = getUsernameFromAuth(authentication);
+        String username = getAccount(request.getUsername(), authentication);
         Double amount = request.getAmount();
         
         log.info("Processing payment for user {}: amount={}, orderId={}", username, amount, request.getOrderId());
         
-        return userBalanceService.getUserBalance(username)
-                .flatMap(currentBalance -> {
-                    if (currentBalance.doubleValue() < amount) {
-                        log.warn("Insufficient funds for user {}: required={}, available={}", username, amount, currentBalance);
-                        return Mono.just(ResponseEntity.badRequest().build());
-                    }
+        if (amount == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        // Payments of one account run one at a time, in arrival order; each is one local atomic debit
+        return accountSequencer.execute(username,
+                        () -> ledgerService.debit(username, BigDecimal.valueOf(amount), request.getOrderId()))
+                .map(entry -> {
+                    log.info("Payment processed successfully for user {}: transactionId={}, newBalance={}",
+                            username, entry.getTransactionId(), entry.getBalanceAfter());
                     
-                    // Process payment
-                    Double newBalance = currentBalance.doubleValue() - amount;
-                    String transactionId = "txn-" + UUID.randomUUID().toString().substring(0, 8);
+                    PaymentResponse response = new PaymentResponse()
+                            .success(true)
+                            .transactionId(entry.getTransactionId())
+                            .newBalance(entry.getBalanceAfter().doubleValue())
+                            .message("Платеж успешно обработан")
+                            .timestamp(OffsetDateTime.now());
                     
-                    return userBalanceService.updateUserBalance(username, java.math.BigDecimal.valueOf(newBalance))
-                            .map(success -> {
-                                if (success) {
-                                    log.info("Payment processed successfully for user {}: transactionId={}, newBalance={}", username, transactionId, newBalance);
-                                    
-                                    PaymentResponse response = new PaymentResponse()
-                                            .success(true)
-                                            .transactionId(transactionId)
-                                            .newBalance(newBalance)
-                                            .message("Платеж успешно обработан")
-                                            .timestamp(OffsetDateTime.now());
-                                    
-                                    return ResponseEntity.ok(response);
-                                } else {
-                                    log.error("Failed to update balance for user {}", username);
-                                    return ResponseEntity.internalServerError().build();
-                                }
-                            });
-                });
+                    return ResponseEntity.ok(response);
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.warn("Insufficient funds for user {}: required={}", username, amount);
+                    return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).build();
+                }))
+                .onErrorResume(IllegalArgumentException.class, e -> {
+                    log.warn("Rejected payment for user {}: {}", username, e.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().build());
+                })
+                .onErrorResume(RejectedExecutionException.class, e ->
+                        Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build()));
     }
     
+    /**
+     * The account named in the request, or the authenticated principal's own.
+     * Only the shop's service client may name another account; anyone else
+     * gets 403.
+     */
+    private String getAccount(String username, Authentication authentication) {
+        if (username == null || username.isBlank()) {
+            return getUsernameFromAuth(authentication);
+        }
+        if (!isTrustedClient(authentication)) {
+            log.warn("Rejected access to account {} by {}", username, getUsernameFromAuth(authentication));
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Only the shop service may act for another account");
+        }
+        return username;
+    }
+
+    /**
+     * Keycloak puts the client id claim ({@code client_id}, {@code clientId}
+     * before Keycloak 24) only into client credentials tokens, so a user token
+     * issued through the same client does not match.
+     */
+    private boolean isTrustedClient(Authentication authentication) {
+        if (!(authentication instanceof JwtAuthenticationToken jwtAuthentication)) {
+            return false;
+        }
+        Jwt token = jwtAuthentication.getToken();
+        String clientId = token.hasClaim("client_id") ? token.getClaimAsString("client_id") : token.getClaimAsString("clientId");
+        return trustedClientId.equals(clientId);
+    }
+
     private String getUsernameFromAuth(Authentication authentication) {
         if (authentication == null) {
             return "anonymous";
@@ -0,0 +1,25 @@
+package io.github.danjos.payment.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Current balance of an account, maintained by {@code AccountRepository}
+ * together with the ledger entries; never saved directly.
+ */
+@Table("accounts")
+@Data
+public class Account {
+    @Id
+    private String username;
+
+    private BigDecimal balance;
+
+    @Column("updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,44 @@
+package io.github.danjos.payment.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One movement of money on an account. Entries are only ever inserted; the
+ * balance of an account is the sum of its entries.
+ */
+@Table("ledger_entries")
+@Data
+public class LedgerEntry {
+    public static final String OPENING = "OPENING";
+    public static final String DEBIT = "DEBIT";
+
+    @Id
+    private Long id;
+
+    @Column("transaction_id")
+    private String transactionId;
+
+    private String username;
+
+    private String type;
+
+    /**
+     * Signed: positive credits the account, negative debits it.
+     */
+    private BigDecimal amount;
+
+    @Column("balance_after")
+    private BigDecimal balanceAfter;
+
+    @Column("order_id")
+    private String orderId;
+
+    @Column("created_at")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,32 @@
+package io.github.danjos.payment.repository;
+
+import io.github.danjos.payment.model.Account;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+@Repository
+public interface AccountRepository extends ReactiveCrudRepository<Account, String> {
+
+    /**
+     * Creates the account unless it exists; returns the number of rows inserted.
+     */
+    @Modifying
+    @Query("INSERT INTO accounts (username, balance) " +
+            "SELECT CAST(:username AS VARCHAR(255)), CAST(:balance AS DECIMAL(19, 2)) " +
+            "WHERE NOT EXISTS (SELECT 1 FROM accounts WHERE username = :username)")
+    Mono<Integer> openIfAbsent(String username, BigDecimal balance);
+
+    /**
+     * Atomically subtracts the amount if the balance covers it and returns the
+     * new balance; completes empty (nothing changed) when it does not.
+     */
+    @Query("SELECT balance FROM FINAL TABLE (" +
+            "UPDATE accounts SET balance = balance - :amount, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE username = :username AND balance >= :amount)")
+    Mono<BigDecimal> debit(String username, BigDecimal amount);
+}
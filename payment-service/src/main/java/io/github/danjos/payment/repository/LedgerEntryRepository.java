@@ -0,0 +1,15 @@
+package io.github.danjos.payment.repository;
+
+import io.github.danjos.payment.model.LedgerEntry;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface LedgerEntryRepository extends ReactiveCrudRepository<LedgerEntry, Long> {
+
+    Flux<LedgerEntry> findByUsernameOrderById(String username);
+
+    Mono<LedgerEntry> findByUsernameAndOrderId(String username, String orderId);
+}
@@ -0,0 +1,174 @@
+package io.github.danjos.payment.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs operations for one account strictly one after another, in arrival
+ * order, without holding a thread while they wait.
+ * <p>
+ * Accounts are hashed onto a fixed set of {@code stripes}. Each stripe is a
+ * lock-free queue with a counter of pending operations: the caller that
+ * finds the stripe idle starts the operation, and every completion starts
+ * the next one on the thread it completes on. Different accounts run in
+ * parallel unless they share a stripe.
+ * <p>
+ * Each account may have at most {@code account-queue-capacity} operations
+ * pending, counting the running one; beyond that its calls fail fast with a
+ * {@link RejectedExecutionException}. The bound is kept per account, not per
+ * stripe, so a busy account cannot get the accounts hashed next to it
+ * rejected. The counter of an account is dropped when it reaches zero.
+ */
+@Component
+@Slf4j
+public class AccountSequencer {
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final ConcurrentHashMap<String, Integer> accountPending = new ConcurrentHashMap<>();
+    private final int accountQueueCapacity;
+
+    public AccountSequencer(
+            @Value("${payment.sequencer.stripes:256}") int stripes,
+            @Value("${payment.sequencer.account-queue-capacity:32}") int accountQueueCapacity) {
+        // Power of two, so the stripe index is a mask of the hash
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = size - 1;
+        this.accountQueueCapacity = accountQueueCapacity;
+    }
+
+    /**
+     * Subscribes to the operation once every earlier operation of the account
+     * has completed. Cancelling before its turn drops the operation.
+     */
+    public <T> Mono<T> execute(String account, Supplier<Mono<T>> operation) {
+        return Mono.create(sink -> submit(stripes[stripeIndex(account)], new Task<>(account, operation, sink)));
+    }
+
+    int stripeIndex(String account) {
+        int h = account.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void submit(Stripe stripe, Task<?> task) {
+        if (!tryAcquire(task.account)) {
+            log.warn("Payment queue for account {} is full ({} pending), rejecting",
+                    task.account, accountQueueCapacity);
+            task.sink.error(new RejectedExecutionException(
+                    "Too many pending payments for account " + task.account));
+            return;
+        }
+        // Unbounded per stripe: every account on it is bounded already
+        int pending = stripe.pending.getAndIncrement();
+        stripe.queue.offer(task);
+        if (pending == 0) {
+            runNext(stripe);
+        }
+    }
+
+    private boolean tryAcquire(String account) {
+        AtomicBoolean acquired = new AtomicBoolean();
+        accountPending.compute(account, (key, pending) -> {
+            int count = pending == null ? 0 : pending;
+            if (count >= accountQueueCapacity) {
+                return pending;
+            }
+            acquired.set(true);
+            return count + 1;
+        });
+        return acquired.get();
+    }
+
+    private void release(String account) {
+        accountPending.computeIfPresent(account, (key, pending) -> pending == 1 ? null : pending - 1);
+    }
+
+    int pendingAccounts() {
+        return accountPending.size();
+    }
+
+    private void runNext(Stripe stripe) {
+        Task<?> task;
+        // A producer counts itself before it offers; wait out that short gap
+        while ((task = stripe.queue.poll()) == null) {
+            Thread.onSpinWait();
+        }
+        Task<?> current = task;
+        task.run(() -> {
+            release(current.account);
+            if (stripe.pending.decrementAndGet() > 0) {
+                runNext(stripe);
+            }
+        });
+    }
+
+    private static final class Stripe {
+        private final Queue<Task<?>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+    }
+
+    private static final class Task<T> {
+        private final String account;
+        private final Supplier<Mono<T>> operation;
+        private final MonoSink<T> sink;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile Disposable running;
+
+        private Task(String account, Supplier<Mono<T>> operation, MonoSink<T> sink) {
+            this.account = account;
+            this.operation = operation;
+            this.sink = sink;
+            sink.onCancel(() -> {
+                cancelled.set(true);
+                Disposable current = running;
+                if (current != null) {
+                    current.dispose();
+                }
+            });
+        }
+
+        private void run(Runnable next) {
+            // Hands the stripe to the next operation exactly once, however this one ends
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    next.run();
+                }
+            };
+            if (cancelled.get()) {
+                release.run();
+                return;
+            }
+            Mono<T> work;
+            try {
+                work = operation.get();
+            } catch (RuntimeException e) {
+                sink.error(e);
+                release.run();
+                return;
+            }
+            running = work
+                    .doFinally(signal -> release.run())
+                    .subscribe(sink::success, sink::error, sink::success);
+            if (cancelled.get()) {
+                running.dispose();
+            }
+        }
+    }
+}
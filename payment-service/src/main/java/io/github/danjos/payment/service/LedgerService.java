@@ -0,0 +1,111 @@
+package io.github.danjos.payment.service;
+
+import io.github.danjos.payment.model.Account;
+import io.github.danjos.payment.model.LedgerEntry;
+import io.github.danjos.payment.repository.AccountRepository;
+import io.github.danjos.payment.repository.LedgerEntryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Balances owned by the payment service: a ledger of entries per account and
+ * the balance projected from it.
+ * <p>
+ * An account is opened with {@code payment.initial.balance} on first use. A
+ * debit is one conditional update of the balance plus the appended entry, in
+ * one local transaction, so concurrent payments can never overdraw an account
+ * and no call leaves the service. A debit for an order that was already paid
+ * returns the original entry instead of charging again.
+ */
+@Service
+@Slf4j
+public class LedgerService {
+
+    private final AccountRepository accountRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final BigDecimal initialBalance;
+
+    public LedgerService(AccountRepository accountRepository,
+                         LedgerEntryRepository ledgerEntryRepository,
+                         TransactionalOperator transactionalOperator,
+                         @Value("${payment.initial.balance:1000.00}") BigDecimal initialBalance) {
+        this.accountRepository = accountRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.initialBalance = money(initialBalance);
+    }
+
+    public Mono<BigDecimal> getBalance(String username) {
+        return accountRepository.findById(username)
+                .switchIfEmpty(Mono.defer(() -> openAccount(username).then(accountRepository.findById(username))))
+                .map(Account::getBalance);
+    }
+
+    /**
+     * Debits the amount (rounded to kopecks) for the order and returns the
+     * ledger entry; completes empty when the balance does not cover it.
+     */
+    public Mono<LedgerEntry> debit(String username, BigDecimal amount, String orderId) {
+        if (amount == null || amount.signum() <= 0) {
+            return Mono.error(new IllegalArgumentException("Payment amount must be positive: " + amount));
+        }
+        if (orderId == null || orderId.isBlank()) {
+            return Mono.error(new IllegalArgumentException("Payment must reference an order"));
+        }
+        BigDecimal exact = money(amount);
+        return ledgerEntryRepository.findByUsernameAndOrderId(username, orderId)
+                .doOnNext(entry -> log.info("Order {} of user {} already paid with {}",
+                        orderId, username, entry.getTransactionId()))
+                .switchIfEmpty(Mono.defer(() -> openAccount(username).then(applyDebit(username, exact, orderId))))
+                // A concurrent payment of the same order committed first: ours rolled back
+                .onErrorResume(DataIntegrityViolationException.class, e ->
+                        ledgerEntryRepository.findByUsernameAndOrderId(username, orderId)
+                                .switchIfEmpty(Mono.error(e)));
+    }
+
+    private Mono<LedgerEntry> applyDebit(String username, BigDecimal amount, String orderId) {
+        return accountRepository.debit(username, amount)
+                .flatMap(balanceAfter -> ledgerEntryRepository.save(
+                        entry(username, LedgerEntry.DEBIT, amount.negate(), balanceAfter, orderId)))
+                .as(transactionalOperator::transactional);
+    }
+
+    private Mono<Void> openAccount(String username) {
+        return accountRepository.openIfAbsent(username, initialBalance)
+                .filter(inserted -> inserted > 0)
+                .flatMap(inserted -> ledgerEntryRepository.save(
+                        entry(username, LedgerEntry.OPENING, initialBalance, initialBalance, null)))
+                .doOnNext(entry -> log.info("Opened account {} with {}", username, initialBalance))
+                .as(transactionalOperator::transactional)
+                // Opened concurrently by another request
+                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.empty())
+                .then();
+    }
+
+    private static LedgerEntry entry(String username, String type, BigDecimal amount,
+                                     BigDecimal balanceAfter, String orderId) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setTransactionId("txn-" + UUID.randomUUID());
+        entry.setUsername(username);
+        entry.setType(type);
+        entry.setAmount(amount);
+        entry.setBalanceAfter(balanceAfter);
+        entry.setOrderId(orderId);
+        entry.setCreatedAt(LocalDateTime.now());
+        return entry;
+    }
+
+    private static BigDecimal money(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,25 @@
+-- Balance per account: a projection of the ledger, updated in the same
+-- transaction as every entry appended to it
+CREATE TABLE IF NOT EXISTS accounts (
+    username VARCHAR(255) PRIMARY KEY,
+    balance DECIMAL(19, 2) NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    CONSTRAINT chk_accounts_balance CHECK (balance >= 0)
+);
+
+-- Append-only ledger: entries are inserted, never updated or deleted
+CREATE TABLE IF NOT EXISTS ledger_entries (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    transaction_id VARCHAR(64) NOT NULL UNIQUE,
+    username VARCHAR(255) NOT NULL,
+    type VARCHAR(16) NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    balance_after DECIMAL(19, 2) NOT NULL,
+    order_id VARCHAR(255),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    FOREIGN KEY (username) REFERENCES accounts(username)
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_entries_username ON ledger_entries(username);
+-- One debit per order: a repeated payment request replays the first entry
+CREATE UNIQUE INDEX IF NOT EXISTS idx_ledger_entries_username_order ON ledger_entries(username, order_id);
@@ -0,0 +1,93 @@
+package io.github.danjos.payment.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("CachingJwtDecoder Tests")
+class CachingJwtDecoderTest {
+
+    private final AtomicInteger verifications = new AtomicInteger();
+    private RSAKey signingKey;
+    private CachingJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        signingKey = new RSAKeyGenerator(2048).keyID("intershop").generate();
+        ReactiveJwtDecoder nimbus = NimbusReactiveJwtDecoder.withPublicKey(signingKey.toRSAPublicKey()).build();
+        ReactiveJwtDecoder counting = token -> {
+            verifications.incrementAndGet();
+            return nimbus.decode(token);
+        };
+        decoder = new CachingJwtDecoder(counting, 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    @DisplayName("Should verify a token once and reuse the result")
+    void decode_SameToken_ShouldVerifyOnce() throws Exception {
+        String token = sign(signingKey, Instant.now().plusSeconds(300));
+
+        for (int i = 0; i < 5; i++) {
+            StepVerifier.create(decoder.decode(token))
+                    .assertNext(jwt -> assertThat(jwt.getSubject()).isEqualTo("intershop"))
+                    .verifyComplete();
+        }
+        assertThat(verifications.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should not cache tokens that fail verification")
+    void decode_WithForeignSignature_ShouldFailEveryTime() throws Exception {
+        String token = sign(new RSAKeyGenerator(2048).generate(), Instant.now().plusSeconds(300));
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(decoder.decode(token))
+                    .expectError(JwtException.class)
+                    .verify();
+        }
+        assertThat(verifications.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should verify again once the cached token has expired")
+    void decode_AfterExpiry_ShouldVerifyAgain() throws Exception {
+        String token = sign(signingKey, Instant.now().plusMillis(1500));
+
+        decoder.decode(token).block();
+        Thread.sleep(2000);
+        // Still accepted within the default clock skew, but no longer from the cache
+        decoder.decode(token).block();
+
+        assertThat(verifications.get()).isEqualTo(2);
+    }
+
+    private static String sign(RSAKey key, Instant expiresAt) throws Exception {
+        SignedJWT jwt = new SignedJWT(
+                new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(),
+                new JWTClaimsSet.Builder()
+                        .subject("intershop")
+                        .issueTime(new Date())
+                        .expirationTime(Date.from(expiresAt))
+                        .build());
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.danjos.payment.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("JwkSetCache Tests")
+class JwkSetCacheTest {
+
+    private final AtomicReference<String> keysJson = new AtomicReference<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private DisposableServer keycloak;
+
+    private RSAKey oldKey;
+    private RSAKey newKey;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        oldKey = new RSAKeyGenerator(2048).keyID("old").generate();
+        newKey = new RSAKeyGenerator(2048).keyID("new").generate();
+        publish(oldKey);
+        keycloak = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/certs", (request, response) -> {
+                    requests.incrementAndGet();
+                    String body = keysJson.get();
+                    return body == null
+                            ? response.status(503).send()
+                            : response.header("Content-Type", "application/json").sendString(Mono.just(body));
+                }))
+                .bindNow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        keycloak.disposeNow();
+    }
+
+    @Test
+    @DisplayName("Should serve known keys without calling Keycloak again")
+    void select_WithKnownKid_ShouldUseLoadedKeys() throws Exception {
+        JwkSetCache cache = cache(Duration.ofSeconds(30));
+        cache.fetch().block();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(cache.select(token(oldKey)).map(JWK::getKeyID).collectList().block()).containsExactly("old");
+        }
+        assertThat(requests.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should reload the key set when a token is signed with a rotated key")
+    void select_WithUnknownKid_ShouldRefetch() throws Exception {
+        JwkSetCache cache = cache(Duration.ZERO);
+        cache.fetch().block();
+        publish(oldKey, newKey);
+
+        assertThat(cache.select(token(newKey)).map(JWK::getKeyID).collectList().block()).containsExactly("new");
+        assertThat(requests.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should reload at most once per interval for unknown keys")
+    void select_WithManyUnknownKids_ShouldRateLimitRefetch() throws Exception {
+        JwkSetCache cache = cache(Duration.ofMinutes(1));
+        cache.fetch().block();
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(cache.select(token(newKey)).collectList().block()).isEmpty();
+        }
+        assertThat(requests.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should keep the last known keys when Keycloak is unavailable")
+    void fetch_WhenKeycloakFails_ShouldKeepKeys() throws Exception {
+        JwkSetCache cache = cache(Duration.ZERO);
+        cache.fetch().block();
+        keysJson.set(null);
+
+        assertThat(cache.fetch().block().getKeyByKeyId("old")).isNotNull();
+        assertThat(cache.select(token(oldKey)).map(JWK::getKeyID).collectList().block()).containsExactly("old");
+    }
+
+    private JwkSetCache cache(Duration refetchMinInterval) {
+        return new JwkSetCache(WebClient.builder(), "http://localhost:" + keycloak.port() + "/certs",
+                Duration.ofMinutes(5), refetchMinInterval);
+    }
+
+    private void publish(RSAKey... keys) {
+        keysJson.set(new JWKSet(Arrays.<JWK>asList(keys)).toString());
+    }
+
+    private static SignedJWT token(RSAKey key) {
+        return new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(),
+                new JWTClaimsSet.Builder().subject("intershop").build());
+    }
+}
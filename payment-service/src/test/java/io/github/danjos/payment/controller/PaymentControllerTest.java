@@ -0,0 +1,121 @@
+package io.github.danjos.payment.controller;
+
+import io.github.danjos.payment.domain.PaymentRequest;
+import io.github.danjos.payment.service.AccountSequencer;
+import io.github.danjos.payment.service.LedgerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("PaymentController Tests")
+class PaymentControllerTest {
+
+    private LedgerService ledgerService;
+    private PaymentController paymentController;
+
+    @BeforeEach
+    void setUp() {
+        ledgerService = mock(LedgerService.class);
+        paymentController = new PaymentController(ledgerService, new AccountSequencer(1, 32), "intershop-app");
+        ReflectionTestUtils.setField(paymentController, "currency", "RUB");
+    }
+
+    @Nested
+    @DisplayName("Account Selection Tests")
+    class AccountSelectionTests {
+
+        @Test
+        @DisplayName("Should read the account named by the shop's service client")
+        void getBalance_ByShopServiceClient_ShouldUseNamedAccount() {
+            when(ledgerService.getBalance("user1")).thenReturn(Mono.just(new BigDecimal("850.50")));
+
+            StepVerifier.create(paymentController.getBalance("user1",
+                            token("service-account-intershop-app", Map.of("client_id", "intershop-app"))))
+                    .assertNext(response -> assertThat(response.getBody().getBalance()).isEqualTo(850.5))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should refuse a user token that names another account")
+        void getBalance_ByUserNamingOtherAccount_ShouldBeForbidden() {
+            Authentication user = token("mallory", Map.of("azp", "intershop-app"));
+
+            assertThatThrownBy(() -> paymentController.getBalance("user1", user))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN));
+            verify(ledgerService, never()).getBalance(anyString());
+        }
+
+        @Test
+        @DisplayName("Should read the caller's own account when none is named")
+        void getBalance_WithoutUsername_ShouldUseOwnAccount() {
+            when(ledgerService.getBalance("mallory")).thenReturn(Mono.just(new BigDecimal("10.00")));
+
+            StepVerifier.create(paymentController.getBalance(null, token("mallory", Map.of("azp", "intershop-app"))))
+                    .assertNext(response -> assertThat(response.getBody().getBalance()).isEqualTo(10.0))
+                    .verifyComplete();
+        }
+    }
+
+    @Nested
+    @DisplayName("Payment Status Tests")
+    class PaymentStatusTests {
+
+        private final Authentication shop = token("service-account-intershop-app", Map.of("client_id", "intershop-app"));
+
+        @Test
+        @DisplayName("Should answer 402 when the balance does not cover the amount")
+        void processPayment_WithInsufficientFunds_ShouldAnswerPaymentRequired() {
+            when(ledgerService.debit("user1", BigDecimal.valueOf(5000.0), "checkout-1-token")).thenReturn(Mono.empty());
+
+            StepVerifier.create(paymentController.processPayment(request(5000.0), shop))
+                    .assertNext(response -> assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PAYMENT_REQUIRED))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should answer 400 for an invalid request, not 402")
+        void processPayment_WithInvalidAmount_ShouldAnswerBadRequest() {
+            when(ledgerService.debit("user1", BigDecimal.valueOf(-1.0), "checkout-1-token"))
+                    .thenReturn(Mono.error(new IllegalArgumentException("Amount must be positive")));
+
+            StepVerifier.create(paymentController.processPayment(request(-1.0), shop))
+                    .assertNext(response -> assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST))
+                    .verifyComplete();
+        }
+
+        private PaymentRequest request(double amount) {
+            return new PaymentRequest().amount(amount).orderId("checkout-1-token").username("user1");
+        }
+    }
+
+    private static Authentication token(String name, Map<String, Object> claims) {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject(name)
+                .claims(c -> c.putAll(claims))
+                .build();
+        return new JwtAuthenticationToken(jwt, List.of(), name);
+    }
+}
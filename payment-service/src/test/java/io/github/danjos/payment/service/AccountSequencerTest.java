@@ -0,0 +1,143 @@
+package io.github.danjos.payment.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("AccountSequencer Tests")
+class AccountSequencerTest {
+
+    @Test
+    @DisplayName("Should run operations of one account one at a time in arrival order")
+    void execute_SameAccount_ShouldRunInOrder() {
+        AccountSequencer sequencer = new AccountSequencer(16, 100);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        Queue<Integer> started = new ConcurrentLinkedQueue<>();
+
+        List<Mono<Integer>> payments = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            int payment = i;
+            payments.add(sequencer.execute("alice", () -> Mono.defer(() -> {
+                        started.add(payment);
+                        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                        return Mono.delay(Duration.ofMillis(payment % 3)).thenReturn(payment);
+                    })
+                    .doOnTerminate(active::decrementAndGet)));
+        }
+        // Subscribed in order from one thread: the arrival order
+        List<Integer> results = Flux.mergeSequential(payments).collectList().block(Duration.ofSeconds(10));
+
+        assertThat(maxActive.get()).isEqualTo(1);
+        assertThat(started).containsExactlyElementsOf(results);
+        assertThat(results).hasSize(50).isSorted();
+    }
+
+    @Test
+    @DisplayName("Should run different accounts in parallel")
+    void execute_DifferentAccounts_ShouldNotWaitForEachOther() {
+        AccountSequencer sequencer = new AccountSequencer(256, 10);
+        assertThat(sequencer.stripeIndex("alice")).isNotEqualTo(sequencer.stripeIndex("bob"));
+        Sinks.Empty<Void> bobPaid = Sinks.empty();
+
+        // Alice's payment only completes after Bob's, which would never run if Bob waited for Alice
+        Mono<String> alice = sequencer.execute("alice", () -> bobPaid.asMono().thenReturn("alice"));
+        Mono<String> bob = sequencer.execute("bob", () -> Mono.fromRunnable(bobPaid::tryEmitEmpty).thenReturn("bob"));
+
+        StepVerifier.create(Flux.merge(alice, bob).collectList())
+                .assertNext(paid -> assertThat(paid).containsExactlyInAnyOrder("alice", "bob"))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("Should reject operations beyond the queue capacity")
+    void execute_WhenQueueFull_ShouldReject() {
+        AccountSequencer sequencer = new AccountSequencer(16, 2);
+        Sinks.One<String> firstDone = Sinks.one();
+
+        Mono<String> first = sequencer.execute("alice", firstDone::asMono).cache();
+        Mono<String> second = sequencer.execute("alice", () -> Mono.just("second")).cache();
+        first.subscribe();
+        second.subscribe();
+
+        StepVerifier.create(sequencer.execute("alice", () -> Mono.just("third")))
+                .expectError(RejectedExecutionException.class)
+                .verify();
+
+        firstDone.tryEmitValue("first");
+        assertThat(first.block(Duration.ofSeconds(5))).isEqualTo("first");
+        assertThat(second.block(Duration.ofSeconds(5))).isEqualTo("second");
+        assertThat(sequencer.execute("alice", () -> Mono.just("fourth")).block(Duration.ofSeconds(5))).isEqualTo("fourth");
+    }
+
+    @Test
+    @DisplayName("Should bound each account on its own, not the stripe it shares")
+    void execute_WhenNeighbourIsFull_ShouldStillAcceptAccount() {
+        // One stripe: every account shares it
+        AccountSequencer sequencer = new AccountSequencer(1, 1);
+        Sinks.One<String> aliceDone = Sinks.one();
+
+        Mono<String> alice = sequencer.execute("alice", aliceDone::asMono).cache();
+        alice.subscribe();
+        StepVerifier.create(sequencer.execute("alice", () -> Mono.just("alice again")))
+                .expectError(RejectedExecutionException.class)
+                .verify();
+        // Bob waits for his turn on the stripe, but is not turned away
+        Mono<String> bob = sequencer.execute("bob", () -> Mono.just("bob")).cache();
+        bob.subscribe();
+
+        aliceDone.tryEmitValue("alice");
+        assertThat(alice.block(Duration.ofSeconds(5))).isEqualTo("alice");
+        assertThat(bob.block(Duration.ofSeconds(5))).isEqualTo("bob");
+        assertThat(sequencer.pendingAccounts()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should move on to the next operation after a failure")
+    void execute_AfterFailure_ShouldRunNext() {
+        AccountSequencer sequencer = new AccountSequencer(16, 10);
+
+        StepVerifier.create(sequencer.execute("alice", () -> Mono.<String>error(new IllegalStateException("db down"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+        StepVerifier.create(sequencer.<String>execute("alice", () -> {
+                    throw new IllegalArgumentException("bad amount");
+                }))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        StepVerifier.create(sequencer.execute("alice", () -> Mono.just("paid")))
+                .assertNext(result -> assertThat(result).isEqualTo("paid"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should skip an operation cancelled while it waits for its turn")
+    void execute_CancelledWhileQueued_ShouldSkip() {
+        AccountSequencer sequencer = new AccountSequencer(16, 10);
+        Sinks.One<String> firstDone = Sinks.one();
+        AtomicBoolean skippedRan = new AtomicBoolean();
+
+        Mono<String> first = sequencer.execute("alice", firstDone::asMono).cache();
+        first.subscribe();
+        sequencer.execute("alice", () -> Mono.fromRunnable(() -> skippedRan.set(true))).subscribe().dispose();
+
+        firstDone.tryEmitValue("first");
+        assertThat(sequencer.execute("alice", () -> Mono.just("next")).block(Duration.ofSeconds(5))).isEqualTo("next");
+        assertThat(skippedRan).isFalse();
+    }
+}
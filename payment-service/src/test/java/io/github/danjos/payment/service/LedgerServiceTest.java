@@ -0,0 +1,143 @@
+package io.github.danjos.payment.service;
+
+import io.github.danjos.payment.model.LedgerEntry;
+import io.github.danjos.payment.repository.AccountRepository;
+import io.github.danjos.payment.repository.LedgerEntryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataR2dbcTest
+@DisplayName("LedgerService Tests")
+class LedgerServiceTest {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private ReactiveTransactionManager transactionManager;
+
+    private LedgerService ledgerService;
+    private String username;
+
+    @BeforeEach
+    void setUp() {
+        ledgerService = new LedgerService(accountRepository, ledgerEntryRepository,
+                TransactionalOperator.create(transactionManager), new BigDecimal("1000.00"));
+        // Every test works on its own account in the shared in-memory database
+        username = "user-" + UUID.randomUUID();
+    }
+
+    @Nested
+    @DisplayName("Account Tests")
+    class AccountTests {
+
+        @Test
+        @DisplayName("Should open an account with the initial balance on first use")
+        void getBalance_ForNewAccount_ShouldOpenIt() {
+            StepVerifier.create(ledgerService.getBalance(username))
+                    .assertNext(balance -> assertThat(balance).isEqualByComparingTo("1000.00"))
+                    .verifyComplete();
+            StepVerifier.create(ledgerService.getBalance(username))
+                    .assertNext(balance -> assertThat(balance).isEqualByComparingTo("1000.00"))
+                    .verifyComplete();
+
+            StepVerifier.create(ledgerEntryRepository.findByUsernameOrderById(username))
+                    .assertNext(entry -> {
+                        assertThat(entry.getType()).isEqualTo(LedgerEntry.OPENING);
+                        assertThat(entry.getAmount()).isEqualByComparingTo("1000.00");
+                    })
+                    .verifyComplete();
+        }
+    }
+
+    @Nested
+    @DisplayName("Debit Tests")
+    class DebitTests {
+
+        @Test
+        @DisplayName("Should debit in exact decimal and append an entry per payment")
+        void debit_WithEnoughBalance_ShouldAppendEntries() {
+            StepVerifier.create(ledgerService.debit(username, new BigDecimal("0.10"), "order-1"))
+                    .assertNext(entry -> assertThat(entry.getBalanceAfter()).isEqualByComparingTo("999.90"))
+                    .verifyComplete();
+            StepVerifier.create(ledgerService.debit(username, new BigDecimal("0.20"), "order-2"))
+                    .assertNext(entry -> {
+                        assertThat(entry.getType()).isEqualTo(LedgerEntry.DEBIT);
+                        assertThat(entry.getAmount()).isEqualByComparingTo("-0.20");
+                        assertThat(entry.getBalanceAfter()).isEqualByComparingTo("999.70");
+                    })
+                    .verifyComplete();
+
+            assertThat(ledgerEntryRepository.findByUsernameOrderById(username).collectList().block())
+                    .extracting(LedgerEntry::getType)
+                    .containsExactly(LedgerEntry.OPENING, LedgerEntry.DEBIT, LedgerEntry.DEBIT);
+        }
+
+        @Test
+        @DisplayName("Should leave balance and ledger untouched when the balance does not cover the amount")
+        void debit_WithInsufficientBalance_ShouldReturnEmpty() {
+            StepVerifier.create(ledgerService.debit(username, new BigDecimal("1000.01"), "order-1"))
+                    .verifyComplete();
+
+            StepVerifier.create(ledgerService.getBalance(username))
+                    .assertNext(balance -> assertThat(balance).isEqualByComparingTo("1000.00"))
+                    .verifyComplete();
+            assertThat(ledgerEntryRepository.findByUsernameOrderById(username).count().block()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should charge an order only once")
+        void debit_SameOrderTwice_ShouldReplayFirstEntry() {
+            LedgerEntry first = ledgerService.debit(username, new BigDecimal("100.00"), "order-1").block();
+            LedgerEntry repeated = ledgerService.debit(username, new BigDecimal("100.00"), "order-1").block();
+
+            assertThat(repeated.getTransactionId()).isEqualTo(first.getTransactionId());
+            StepVerifier.create(ledgerService.getBalance(username))
+                    .assertNext(balance -> assertThat(balance).isEqualByComparingTo("900.00"))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should never overdraw under concurrent payments and keep the ledger in balance")
+        void debit_Concurrently_ShouldNotOverdraw() {
+            ledgerService.getBalance(username).block();
+
+            Long succeeded = Flux.range(0, 25)
+                    .flatMap(i -> ledgerService.debit(username, new BigDecimal("100.00"), "order-" + i))
+                    .count()
+                    .block();
+
+            assertThat(succeeded).isEqualTo(10);
+            BigDecimal balance = ledgerService.getBalance(username).block();
+            List<LedgerEntry> entries = ledgerEntryRepository.findByUsernameOrderById(username).collectList().block();
+            assertThat(balance).isEqualByComparingTo("0.00");
+            assertThat(entries.stream().map(LedgerEntry::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add))
+                    .isEqualByComparingTo(balance);
+        }
+
+        @Test
+        @DisplayName("Should reject non-positive amounts")
+        void debit_WithNonPositiveAmount_ShouldFail() {
+            StepVerifier.create(ledgerService.debit(username, BigDecimal.ZERO, "order-1"))
+                    .expectError(IllegalArgumentException.class)
+                    .verify();
+        }
+    }
+}